@@ -0,0 +1,189 @@
+package it.ziotob.puzzlesolver;
+
+import it.ziotob.puzzlesolver.exception.ApplicationException;
+import it.ziotob.puzzlesolver.model.Point;
+import it.ziotob.puzzlesolver.model.PointsGroup;
+import it.ziotob.puzzlesolver.utils.PointUtils;
+import javafx.util.Pair;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+public class Baseline {
+    //Copies of the piece analysis steps as they were before the optimisations, only used to benchmark them next to the
+    //current code. Boxed ys are removed as objects, like the Integer coordinates of the original Point did
+
+    public static List<Point> detectBorderPoints(List<Point> points) {
+
+        PointsGroup group = new PointsGroup();
+        points.forEach(group::addPoint);
+
+        return points.stream()
+                .filter(point -> group.findClosePoints(point).size() < 4)
+                .collect(Collectors.toList());
+    }
+
+    public static List<Point> sortBorders(List<Point> borderPoints) {
+
+        Stack<Point> result = new Stack<>();
+        Map<Integer, List<Integer>> matrix = new HashMap<>();
+        int points = borderPoints.size();
+        borderPoints.forEach(point -> {
+
+            if (!matrix.containsKey(point.getX())) {
+                matrix.put(point.getX(), new ArrayList<>());
+            }
+            matrix.get(point.getX()).add(point.getY());
+        });
+
+        Optional<Point> point = Optional.of(borderPoints.get(0));
+
+        while (points > 0) {
+
+            if (point.isPresent()) {
+
+                matrix.get(point.get().getX()).remove(Integer.valueOf(point.get().getY()));
+                result.push(point.get());
+                points--;
+
+                point = detectNextPoint(matrix, point.get());
+            } else {
+
+                result.pop();
+                point = Optional.of(result.pop());
+            }
+        }
+
+        return result;
+    }
+
+    private static Optional<Point> detectNextPoint(Map<Integer, List<Integer>> matrix, Point point) {
+
+        return Stream.of(
+                new Point(point.getX(), point.getY() - 1),
+                new Point(point.getX() - 1, point.getY() - 1),
+                new Point(point.getX() - 1, point.getY()),
+                new Point(point.getX() - 1, point.getY() + 1),
+                new Point(point.getX(), point.getY() + 1),
+                new Point(point.getX() + 1, point.getY() + 1),
+                new Point(point.getX() + 1, point.getY()),
+                new Point(point.getX() + 1, point.getY() - 1)
+        )
+                .filter(p -> matrix.containsKey(p.getX()) && matrix.get(p.getX()).contains(p.getY()))
+                .findFirst();
+    }
+
+    public static List<Point> negative(List<Point> points) {
+
+        Point min = points.stream().reduce(new Point(Integer.MAX_VALUE, Integer.MAX_VALUE),
+                (prev, curr) -> new Point(Math.min(prev.getX(), curr.getX()), Math.min(prev.getY(), curr.getY())));
+        Point max = points.stream().reduce(new Point(Integer.MIN_VALUE, Integer.MIN_VALUE),
+                (prev, curr) -> new Point(Math.max(prev.getX(), curr.getX()), Math.max(prev.getY(), curr.getY())));
+        Set<Point> pointsSet = new HashSet<>(points);
+
+        return IntStream.range(min.getX(), max.getX())
+                .mapToObj(x -> IntStream.range(min.getY(), max.getY())
+                        .filter(y -> !pointsSet.contains(new Point(x, y)))
+                        .mapToObj(y -> new Point(x, y)))
+                .flatMap(s -> s)
+                .collect(Collectors.toList());
+    }
+
+    public static List<Point> extractArea(List<Point> perimeter, List<Point> points) {
+        //Flood fill from a point inside the perimeter, the lock area before Pick's theorem replaced it
+
+        List<Point> area = new ArrayList<>();
+        Map<Integer, List<Integer>> matrix = new HashMap<>();
+        for (Point point : points) {
+
+            if (!matrix.containsKey(point.getX())) {
+                matrix.put(point.getX(), new ArrayList<>());
+            }
+            matrix.get(point.getX()).add(point.getY());
+        }
+        Set<Point> perimeterSet = new HashSet<>(perimeter);
+        List<Point> pointsToCheck = new ArrayList<>();
+
+        Point startPoint = points.parallelStream().filter(p -> isInside(p, perimeter)).findAny()
+                .orElseThrow(() -> new ApplicationException("Unable to find point to start area calculation"));
+        pointsToCheck.add(startPoint);
+
+        while (!pointsToCheck.isEmpty()) {
+
+            Point point = pointsToCheck.get(0);
+            pointsToCheck.remove(0);
+            matrix.get(point.getX()).remove(Integer.valueOf(point.getY()));
+
+            area.add(point);
+            Stream.of(
+                    new Point(point.getX() + 1, point.getY()),
+                    new Point(point.getX(), point.getY() + 1),
+                    new Point(point.getX() - 1, point.getY()),
+                    new Point(point.getX(), point.getY() - 1)
+            )
+                    .filter(p -> matrix.containsKey(p.getX()) && matrix.get(p.getX()).contains(p.getY()))
+                    .filter(p -> !perimeterSet.contains(p))
+                    .peek(p -> matrix.get(p.getX()).remove(Integer.valueOf(p.getY())))
+                    .forEach(pointsToCheck::add);
+        }
+
+        return area;
+    }
+
+    private static boolean isInside(Point point, List<Point> perimeter) {
+
+        List<Point> collisions = perimeter.stream()
+                .filter(p -> p.getX() == point.getX() || p.getY() == point.getY())
+                .collect(Collectors.toList());
+
+        boolean xRightIncluded = collisions.stream().filter(p -> p.getY() == point.getY()).anyMatch(p -> p.getX() > point.getX());
+        boolean xLeftIncluded = collisions.stream().filter(p -> p.getY() == point.getY()).anyMatch(p -> p.getX() < point.getX());
+        boolean yUpperIncluded = collisions.stream().filter(p -> p.getX() == point.getX()).anyMatch(p -> p.getY() > point.getY());
+        boolean yLowerIncluded = collisions.stream().filter(p -> p.getX() == point.getX()).anyMatch(p -> p.getY() < point.getY());
+
+        return xRightIncluded && xLeftIncluded && yUpperIncluded && yLowerIncluded;
+    }
+
+    public static int detectAlpha(List<Point> corners, Point centerMass) {
+        //Brute force over whole degrees, the rotation before the minimum area rectangle
+
+        Point cornerPoint = corners.stream().findFirst().orElseThrow(() -> new ApplicationException("Detecting alpha without corners"));
+        Point cornerPoint1 = findClosest(corners, cornerPoint, Collections.singletonList(cornerPoint))
+                .orElseThrow(() -> new ApplicationException("Unable to detect cornerPoint1"));
+        Point cornerPoint2 = findClosest(corners, cornerPoint1, Arrays.asList(cornerPoint, cornerPoint1))
+                .orElseThrow(() -> new ApplicationException("Unable to detect cornerPoint2"));
+        Point cornerPoint3 = findClosest(corners, cornerPoint2, Arrays.asList(cornerPoint, cornerPoint1, cornerPoint2))
+                .orElseThrow(() -> new ApplicationException("Unable to detect cornerPoint3"));
+
+        Point originalCenter1 = new Point((cornerPoint.getX() + cornerPoint1.getX()) / 2, (cornerPoint.getY() + cornerPoint1.getY()) / 2);
+        Point originalCenter2 = new Point((cornerPoint2.getX() + cornerPoint3.getX()) / 2, (cornerPoint2.getY() + cornerPoint3.getY()) / 2);
+
+        int alpha = 0;
+        Pair<Integer, Integer> best = new Pair<>(alpha, Integer.MAX_VALUE);
+
+        while (best.getValue() != 0 && alpha < 90) {
+
+            Point center1 = PointUtils.rotate(originalCenter1, centerMass, alpha);
+            Point center2 = PointUtils.rotate(originalCenter2, centerMass, alpha);
+            int bestDistance = Math.min(Math.abs(center1.getX() - center2.getX()), Math.abs(center1.getY() - center2.getY()));
+
+            if (bestDistance < best.getValue()) {
+                best = new Pair<>(alpha, bestDistance);
+            }
+            alpha++;
+        }
+
+        alpha = best.getKey();
+
+        return Math.abs(alpha - 90) < alpha ? alpha - 90 : alpha;
+    }
+
+    private static Optional<Point> findClosest(List<Point> corners, Point cornerPoint, List<Point> excluding) {
+
+        return corners.stream()
+                .filter(p -> !excluding.contains(p))
+                .min(Comparator.comparingDouble(p -> PointUtils.getDistance(p, cornerPoint)));
+    }
+}
@@ -0,0 +1,131 @@
+package it.ziotob.puzzlesolver.model;
+
+import it.ziotob.puzzlesolver.Baseline;
+import it.ziotob.puzzlesolver.services.ImageService;
+import it.ziotob.puzzlesolver.services.RawPieceService;
+import it.ziotob.puzzlesolver.tools.PuzzleGenerator;
+import it.ziotob.puzzlesolver.utils.ContourTracer;
+import it.ziotob.puzzlesolver.utils.PointUtils;
+import javafx.util.Pair;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class RawPieceFactoryBenchmark {
+    //The whole analysis through the public factory, its defect and lock steps, plus the steps it replaced next to their
+    //current counterpart. Each step is fed with the output of the previous ones for a piece analysed once at setup.
+    //Lock points are filled lazily, so the lock benchmarks read them to include the fill. Baseline steps are named
+    //after the current ones
+
+    @Param({"1", "4", "16"})
+    private int megapixels;
+
+    private PointList points;
+    private Moments moments;
+    private List<Point> pointsList;
+    private List<Point> hull;
+    private List<Point> corners;
+    private Point massCenter;
+    private List<List<Point>> outerLocks;
+    private List<List<Point>> innerLocks;
+    private OccupancyGrid grid;
+    private Contour border;
+    private int[] hullIndexes;
+    private List<ConvexityDefect> convexityDefects;
+    private List<ConvexityDefect> convexityDefectsNoOuterLocks;
+
+    @Setup
+    public void setUp() {
+
+        ImageService imageService = new ImageService(ImageService.DEFAULT_HSV_TOLERANCE);
+        PuzzleGenerator generator = new PuzzleGenerator();
+        generator.setMegapixels(megapixels);
+        generator.setPieces(1);
+        //A lock on every side of the only piece
+        generator.setFlatBorder(false);
+        BufferedImage image = generator.generate(42).getImage();
+        Pair<PointList, Moments> piece = new RawPieceService()
+                .detectPiecesPoints(imageService.applyMask(image, imageService.detectBackgroundMask(image))).get(0);
+
+        points = piece.getKey();
+        moments = piece.getValue();
+        pointsList = points.asList();
+        RawPiece rawPiece = RawPieceFactory.factory(points, moments);
+        hull = rawPiece.getHullPoints();
+        corners = rawPiece.getCorners();
+        massCenter = rawPiece.getMassCenter();
+        outerLocks = rawPiece.getOuterLocks().stream().map(OuterLock::getBorderPoints).collect(Collectors.toList());
+        innerLocks = rawPiece.getInnerLocks().stream().map(InnerLock::getBorderPoints).collect(Collectors.toList());
+
+        grid = OccupancyGrid.of(points);
+        border = new Contour(ContourTracer.trace(grid));
+        hullIndexes = PointUtils.convexHullIndexes(border.asList());
+        convexityDefects = rawPiece.getConvexityDefects();
+        convexityDefectsNoOuterLocks = convexityDefects.stream()
+                .filter(convexityDefect -> rawPiece.getOuterLocks().stream()
+                        .noneMatch(outerLock -> outerLock.getConvexityDefects().contains(convexityDefect)))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public RawPiece factory() {
+        return RawPieceFactory.factory(points, moments);
+    }
+
+    @Benchmark
+    public List<ConvexityDefect> convexityDefects() {
+        return RawPieceFactory.detectConvexityDefects(border, hullIndexes);
+    }
+
+    @Benchmark
+    public void outerLocks(Blackhole blackhole) {
+        RawPieceFactory.detectOuterLocks(convexityDefects, border, grid, moments.getArea()).forEach(lock -> blackhole.consume(lock.getPointList()));
+    }
+
+    @Benchmark
+    public void innerLocks(Blackhole blackhole) {
+        RawPieceFactory.detectInnerLocks(convexityDefectsNoOuterLocks, border, grid).forEach(lock -> blackhole.consume(lock.getPointList()));
+    }
+
+    @Benchmark
+    public void lockAreas(Blackhole blackhole) {
+        //Pick's theorem on the lock perimeter, what accepting a lock costs now
+
+        outerLocks.forEach(perimeter -> blackhole.consume(Math.round(PointUtils.polygonArea(perimeter)
+                + PointUtils.boundaryLatticePoints(perimeter) / 2.0 + 1)));
+        innerLocks.forEach(perimeter -> blackhole.consume(Math.round(PointUtils.polygonArea(perimeter)
+                - PointUtils.boundaryLatticePoints(perimeter) / 2.0 + 1)));
+    }
+
+    @Benchmark
+    public void lockAreasBaseline(Blackhole blackhole) {
+        //Flood fill of each lock, inner ones over the background of the piece bounding box
+
+        outerLocks.forEach(perimeter -> blackhole.consume(Baseline.extractArea(perimeter, pointsList).size() + perimeter.size()));
+        if (!innerLocks.isEmpty()) {
+
+            List<Point> background = Baseline.negative(pointsList);
+            innerLocks.forEach(perimeter -> blackhole.consume(Baseline.extractArea(perimeter, background).size()));
+        }
+    }
+
+    @Benchmark
+    public double detectAlpha() {
+        return RawPieceFactory.detectOrientation(hull);
+    }
+
+    @Benchmark
+    public int detectAlphaBaseline() {
+        return Baseline.detectAlpha(corners, massCenter);
+    }
+}
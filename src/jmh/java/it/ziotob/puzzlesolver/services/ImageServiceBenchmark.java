@@ -0,0 +1,47 @@
+package it.ziotob.puzzlesolver.services;
+
+import it.ziotob.puzzlesolver.model.Mask;
+import it.ziotob.puzzlesolver.tools.PuzzleGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ImageServiceBenchmark {
+    //Times are per image, divide by megapixels to compare sizes
+
+    @Param({"1", "4", "16"})
+    private int megapixels;
+    @Param({"1", "100"})
+    private int pieces;
+
+    private final ImageService imageService = new ImageService(ImageService.DEFAULT_HSV_TOLERANCE);
+    private BufferedImage image;
+    private Mask backgroundMask;
+
+    @Setup
+    public void setUp() {
+
+        PuzzleGenerator generator = new PuzzleGenerator();
+        generator.setMegapixels(megapixels);
+        generator.setPieces(pieces);
+        image = generator.generate(42).getImage();
+        backgroundMask = imageService.detectBackgroundMask(image);
+    }
+
+    @Benchmark
+    public Mask detectBackgroundMask() {
+        return imageService.detectBackgroundMask(image);
+    }
+
+    @Benchmark
+    public Mask applyMask() {
+        return imageService.applyMask(image, backgroundMask);
+    }
+}
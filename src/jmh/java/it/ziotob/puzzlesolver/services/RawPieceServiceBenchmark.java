@@ -0,0 +1,54 @@
+package it.ziotob.puzzlesolver.services;
+
+import it.ziotob.puzzlesolver.model.Mask;
+import it.ziotob.puzzlesolver.model.Moments;
+import it.ziotob.puzzlesolver.model.PointList;
+import it.ziotob.puzzlesolver.model.RawPiece;
+import it.ziotob.puzzlesolver.tools.PuzzleGenerator;
+import javafx.util.Pair;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class RawPieceServiceBenchmark {
+
+    @Param({"4", "16"})
+    private int megapixels;
+    @Param({"16", "100"})
+    private int pieces;
+    @Param({"SEQUENTIAL", "PARALLEL"})
+    private RawPieceService.LabelingMode labelingMode;
+
+    private final RawPieceService rawPieceService = new RawPieceService();
+    private Mask piecesMask;
+
+    @Setup
+    public void setUp() {
+
+        ImageService imageService = new ImageService(ImageService.DEFAULT_HSV_TOLERANCE);
+        PuzzleGenerator generator = new PuzzleGenerator();
+        generator.setMegapixels(megapixels);
+        generator.setPieces(pieces);
+        BufferedImage image = generator.generate(42).getImage();
+        piecesMask = imageService.applyMask(image, imageService.detectBackgroundMask(image));
+        rawPieceService.setLabelingMode(labelingMode);
+    }
+
+    @Benchmark
+    public List<Pair<PointList, Moments>> labelPieces() {
+        return rawPieceService.detectPiecesPoints(piecesMask);
+    }
+
+    @Benchmark
+    public List<RawPiece> detectPieces() {
+        return rawPieceService.detectPieces(piecesMask);
+    }
+}
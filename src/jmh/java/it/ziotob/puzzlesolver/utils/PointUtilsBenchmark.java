@@ -0,0 +1,77 @@
+package it.ziotob.puzzlesolver.utils;
+
+import it.ziotob.puzzlesolver.Baseline;
+import it.ziotob.puzzlesolver.model.OccupancyGrid;
+import it.ziotob.puzzlesolver.model.Point;
+import it.ziotob.puzzlesolver.model.PointList;
+import it.ziotob.puzzlesolver.services.ImageService;
+import it.ziotob.puzzlesolver.services.RawPieceService;
+import it.ziotob.puzzlesolver.tools.PuzzleGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class PointUtilsBenchmark {
+    //A single piece, its side in pixels grows with the image. Baseline benchmarks run the code the current one replaced
+
+    @Param({"1", "4", "16"})
+    private int megapixels;
+
+    private List<Point> points;
+    private OccupancyGrid grid;
+    private List<Point> border;
+    private List<Point> hull;
+
+    @Setup
+    public void setUp() {
+
+        ImageService imageService = new ImageService(ImageService.DEFAULT_HSV_TOLERANCE);
+        PuzzleGenerator generator = new PuzzleGenerator();
+        generator.setMegapixels(megapixels);
+        generator.setPieces(1);
+        //Locks on all sides, so the border has concave stretches for the hull to skip
+        generator.setFlatBorder(false);
+        BufferedImage image = generator.generate(42).getImage();
+        PointList pointList = new RawPieceService().detectPiecesPoints(imageService.applyMask(image, imageService.detectBackgroundMask(image)))
+                .get(0).getKey();
+        points = pointList.asList();
+        grid = OccupancyGrid.of(pointList);
+        border = ContourTracer.trace(grid).asList();
+        hull = PointUtils.convexHull(border);
+    }
+
+    @Benchmark
+    public PointList traceBorder() {
+        return ContourTracer.trace(grid);
+    }
+
+    @Benchmark
+    public List<Point> traceBorderBaseline() {
+        //Pixels with a missing 4-neighbour, then chained by a backtracking walk
+        return Baseline.sortBorders(Baseline.detectBorderPoints(points));
+    }
+
+    @Benchmark
+    public int[] convexHull() {
+        return PointUtils.convexHullIndexes(border);
+    }
+
+    @Benchmark
+    public List<Point> convexHullBaseline() {
+        //Monotone chain, sorting the border points first
+        return PointUtils.convexHull(border);
+    }
+
+    @Benchmark
+    public double minimumAreaRectangle() {
+        return PointUtils.minimumAreaRectangleAngle(hull);
+    }
+}
@@ -1,8 +1,62 @@
 package it.ziotob.puzzlesolver;
 
+import it.ziotob.puzzlesolver.model.BatchSummary;
+import it.ziotob.puzzlesolver.services.BatchService;
+import it.ziotob.puzzlesolver.services.ImageService;
+import it.ziotob.puzzlesolver.services.RawPieceService;
+import it.ziotob.puzzlesolver.utils.Metrics;
+
+import java.nio.file.Paths;
+
 public class Main {
 
+    private static final String USAGE = "Usage: puzzlesolver <photos directory> <output csv>"
+            + " [--decode-threads=N] [--segmentation-threads=N] [--analysis-threads=N] [--image-queue=N] [--metrics]";
+
     public static void main (String[] args) {
-        System.out.println("It works");
+
+        if (args.length < 2) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+
+        BatchService batchService = new BatchService(new ImageService(ImageService.DEFAULT_HSV_TOLERANCE), new RawPieceService());
+
+        for (int i = 2; i < args.length; i++) {
+
+            if (args[i].equals("--metrics")) {
+                Metrics.enable();
+                continue;
+            }
+
+            String[] option = args[i].split("=", 2);
+            if (option.length != 2 || !option[1].matches("[1-9][0-9]*")) {
+                System.err.println(USAGE);
+                System.exit(1);
+            }
+
+            int value = Integer.parseInt(option[1]);
+            switch (option[0]) {
+                case "--decode-threads":
+                    batchService.setDecodeThreads(value);
+                    break;
+                case "--segmentation-threads":
+                    batchService.setSegmentationThreads(value);
+                    break;
+                case "--analysis-threads":
+                    batchService.setAnalysisThreads(value);
+                    break;
+                case "--image-queue":
+                    batchService.setImageQueueCapacity(value);
+                    break;
+                default:
+                    System.err.println(USAGE);
+                    System.exit(1);
+            }
+        }
+
+        BatchSummary summary = batchService.run(Paths.get(args[0]), Paths.get(args[1]));
+        System.out.println(summary);
+        summary.getFailures().forEach(failure -> System.err.println("Skipped " + failure));
     }
 }
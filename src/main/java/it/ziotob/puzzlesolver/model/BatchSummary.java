@@ -0,0 +1,21 @@
+package it.ziotob.puzzlesolver.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+@Getter
+@ToString
+public class BatchSummary {
+
+    private final int photos;
+    private final int failedPhotos;
+    private final int pieces;
+    private final int failedPieces;
+    //Photo, or photo and piece number, with the reason it was skipped
+    private final List<String> failures;
+    private final long elapsedMillis;
+}
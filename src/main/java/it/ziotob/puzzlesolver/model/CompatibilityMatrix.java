@@ -0,0 +1,160 @@
+package it.ziotob.puzzlesolver.model;
+
+import it.ziotob.puzzlesolver.exception.ApplicationException;
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class CompatibilityMatrix {
+    //Scores of every pair of edges, identified by piece * 4 + edge, packed as the strict upper triangle of a symmetric
+    //matrix. Pairs on the same piece or rejected by the type and length prefilter keep an infinite score.
+    //Above OFF_HEAP_THRESHOLD scores live in a direct buffer, so a big puzzle does not weigh on the collector
+
+    private static final long OFF_HEAP_THRESHOLD = 1 << 24;
+    private static final double LENGTH_TOLERANCE = 0.15;
+    //Pieces per side of the square blocks computed by a single task, both blocks of profiles stay in cache
+    private static final int BLOCK = 16;
+
+    private final List<Piece> pieces;
+    private final int edgeCount;
+    private final FloatBuffer scores;
+    private final int topK;
+    private final int[] topEdges;
+    @Getter
+    private final boolean offHeap;
+
+    public CompatibilityMatrix(List<Piece> pieces, int topK) {
+        this(pieces, topK, ForkJoinPool.commonPool(), OFF_HEAP_THRESHOLD);
+    }
+
+    public CompatibilityMatrix(List<Piece> pieces, int topK, ForkJoinPool pool) {
+        this(pieces, topK, pool, OFF_HEAP_THRESHOLD);
+    }
+
+    CompatibilityMatrix(List<Piece> pieces, int topK, ForkJoinPool pool, long offHeapThreshold) {
+
+        this.pieces = pieces;
+        this.edgeCount = pieces.size() * PieceEdges.EDGES;
+        this.topK = topK;
+
+        long pairs = (long) edgeCount * (edgeCount - 1) / 2;
+
+        if (pairs * Float.BYTES > Integer.MAX_VALUE) {
+            throw new ApplicationException("Too many edges for a compatibility matrix: " + edgeCount);
+        }
+
+        this.offHeap = pairs > offHeapThreshold;
+        this.scores = offHeap ?
+                ByteBuffer.allocateDirect((int) pairs * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer() :
+                FloatBuffer.wrap(new float[(int) pairs]);
+        this.topEdges = new int[edgeCount * topK];
+
+        int blocks = (pieces.size() + BLOCK - 1) / BLOCK;
+        pool.submit(() -> IntStream.range(0, blocks * blocks).parallel()
+                .filter(block -> block / blocks <= block % blocks)
+                .forEach(block -> computeBlock(block / blocks, block % blocks))).join();
+        pool.submit(() -> IntStream.range(0, edgeCount).parallel()
+                .forEach(this::selectTopEdges)).join();
+    }
+
+    private void computeBlock(int rowBlock, int columnBlock) {
+
+        int rowEnd = Math.min(pieces.size(), (rowBlock + 1) * BLOCK);
+        int columnEnd = Math.min(pieces.size(), (columnBlock + 1) * BLOCK);
+
+        for (int piece = rowBlock * BLOCK; piece < rowEnd; piece++) {
+
+            PieceEdges edges = pieces.get(piece).getEdges();
+
+            for (int otherPiece = Math.max(piece, columnBlock * BLOCK); otherPiece < columnEnd; otherPiece++) {
+
+                PieceEdges otherEdges = pieces.get(otherPiece).getEdges();
+
+                for (int edge = 0; edge < PieceEdges.EDGES; edge++) {
+                    for (int otherEdge = piece == otherPiece ? edge + 1 : 0; otherEdge < PieceEdges.EDGES; otherEdge++) {
+
+                        float score = piece == otherPiece ? Float.POSITIVE_INFINITY : score(edges, edge, otherEdges, otherEdge);
+                        scores.put(index(piece * PieceEdges.EDGES + edge, otherPiece * PieceEdges.EDGES + otherEdge), score);
+                    }
+                }
+            }
+        }
+    }
+
+    private static float score(PieceEdges edges, int edge, PieceEdges otherEdges, int otherEdge) {
+        //Types and lengths are cheap to compare and rule out most pairs before walking the profiles
+
+        if (!edges.getType(edge).fits(otherEdges.getType(otherEdge))
+                || edges.lengthDifference(edge, otherEdges, otherEdge) > LENGTH_TOLERANCE) {
+            return Float.POSITIVE_INFINITY;
+        }
+
+        return edges.score(edge, otherEdges, otherEdge);
+    }
+
+    private void selectTopEdges(int edgeId) {
+        //Insertion into the sorted k best, most of the row is rejected by the first comparison
+
+        float[] best = new float[topK];
+        int[] bestEdges = new int[topK];
+        Arrays.fill(best, Float.POSITIVE_INFINITY);
+        Arrays.fill(bestEdges, -1);
+
+        for (int otherId = 0; otherId < edgeCount; otherId++) {
+
+            float score = get(edgeId, otherId);
+
+            if (topK > 0 && score < best[topK - 1]) {
+
+                int position = topK - 1;
+                while (position > 0 && best[position - 1] > score) {
+
+                    best[position] = best[position - 1];
+                    bestEdges[position] = bestEdges[position - 1];
+                    position--;
+                }
+                best[position] = score;
+                bestEdges[position] = otherId;
+            }
+        }
+
+        System.arraycopy(bestEdges, 0, topEdges, edgeId * topK, topK);
+    }
+
+    private int index(int edgeId, int otherId) {
+        return (int) ((long) edgeId * (2L * edgeCount - edgeId - 1) / 2 + otherId - edgeId - 1);
+    }
+
+    private float get(int edgeId, int otherId) {
+
+        if (edgeId == otherId) {
+            return Float.POSITIVE_INFINITY;
+        }
+
+        return scores.get(edgeId < otherId ? index(edgeId, otherId) : index(otherId, edgeId));
+    }
+
+    public float get(int piece, int edge, int otherPiece, int otherEdge) {
+        return get(piece * PieceEdges.EDGES + edge, otherPiece * PieceEdges.EDGES + otherEdge);
+    }
+
+    public List<EdgeMatch> findMatches(int piece, int edge) {
+        //The top k compatible edges of other pieces, best first
+
+        int edgeId = piece * PieceEdges.EDGES + edge;
+
+        return IntStream.range(edgeId * topK, (edgeId + 1) * topK)
+                .map(i -> topEdges[i])
+                .filter(otherId -> otherId >= 0)
+                .mapToObj(otherId -> new EdgeMatch(piece, edge, otherId / PieceEdges.EDGES, otherId % PieceEdges.EDGES,
+                        get(edgeId, otherId)))
+                .collect(Collectors.toList());
+    }
+}
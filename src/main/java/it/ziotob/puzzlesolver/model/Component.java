@@ -0,0 +1,39 @@
+package it.ziotob.puzzlesolver.model;
+
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+public class Component {
+
+    private final int label;
+    private int pixelCount;
+    private int minX = Integer.MAX_VALUE;
+    private int minY = Integer.MAX_VALUE;
+    private int maxX = Integer.MIN_VALUE;
+    private int maxY = Integer.MIN_VALUE;
+    private final Moments moments = new Moments();
+
+    public Component(int label) {
+        this.label = label;
+    }
+
+    void addRun(int row, int start, int end) {
+
+        pixelCount += end - start;
+        minX = Math.min(minX, start);
+        maxX = Math.max(maxX, end - 1);
+        minY = Math.min(minY, row);
+        maxY = Math.max(maxY, row);
+        moments.addRun(row, start, end);
+    }
+
+    public int getWidth() {
+        return maxX - minX + 1;
+    }
+
+    public int getHeight() {
+        return maxY - minY + 1;
+    }
+}
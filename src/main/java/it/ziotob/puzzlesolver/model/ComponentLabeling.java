@@ -0,0 +1,57 @@
+package it.ziotob.puzzlesolver.model;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class ComponentLabeling {
+
+    @Getter
+    private final Runs runs;
+    private final int[] runLabels;
+    private final List<Component> components = new ArrayList<>();
+
+    public ComponentLabeling(Runs runs) {
+
+        this.runs = runs;
+        this.runLabels = new int[runs.getSize()];
+    }
+
+    public int newComponent() {
+
+        components.add(new Component(components.size()));
+        return components.size() - 1;
+    }
+
+    public void assign(int run, int label) {
+
+        runLabels[run] = label;
+        components.get(label).addRun(runs.getRow(run), runs.getStart(run), runs.getEnd(run));
+    }
+
+    public int getLabel(int run) {
+        return runLabels[run];
+    }
+
+    public List<Component> getComponents() {
+        return Collections.unmodifiableList(components);
+    }
+
+    public List<PointList> toPointLists() {
+
+        List<PointList> pointLists = new ArrayList<>(components.size());
+        components.forEach(component -> pointLists.add(new PointList(component.getPixelCount())));
+
+        for (int run = 0; run < runs.getSize(); run++) {
+
+            PointList points = pointLists.get(runLabels[run]);
+            for (int x = runs.getStart(run); x < runs.getEnd(run); x++) {
+                points.add(x, runs.getRow(run));
+            }
+        }
+
+        return pointLists;
+    }
+}
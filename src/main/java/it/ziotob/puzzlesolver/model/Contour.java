@@ -0,0 +1,155 @@
+package it.ziotob.puzzlesolver.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+public class Contour {
+    //Closed ordered border: indexes are cyclic, points are found in O(1) through an open addressing table on packed coordinates
+
+    private final PointList points;
+    private final long[] keys;
+    private final int[] slots;
+    private final double[] arcLengths;
+
+    public Contour(PointList points) {
+
+        this.points = points;
+
+        int capacity = Integer.highestOneBit(Math.max(2, points.size() * 2) - 1) << 1;
+        this.keys = new long[capacity];
+        this.slots = new int[capacity];
+        Arrays.fill(slots, -1);
+
+        for (int i = 0; i < points.size(); i++) {
+
+            long key = key(points.getX(i), points.getY(i));
+            int slot = slot(key);
+            while (slots[slot] >= 0 && keys[slot] != key) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            //A pixel visited twice keeps its first index
+            if (slots[slot] < 0) {
+                keys[slot] = key;
+                slots[slot] = i;
+            }
+        }
+
+        //arcLengths[i] is the length from the first point to point i, the last entry closes the contour
+        this.arcLengths = new double[points.size() + 1];
+        for (int i = 1; i <= points.size(); i++) {
+
+            int previous = i - 1;
+            int current = i % points.size();
+            arcLengths[i] = arcLengths[previous] + Math.hypot(
+                    points.getX(current) - points.getX(previous),
+                    points.getY(current) - points.getY(previous));
+        }
+    }
+
+    private static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    private int slot(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 33) & (keys.length - 1);
+    }
+
+    public int size() {
+        return points.size();
+    }
+
+    public int normalize(int index) {
+        return Math.floorMod(index, points.size());
+    }
+
+    public Point get(int index) {
+        return points.get(normalize(index));
+    }
+
+    public int indexOf(int x, int y) {
+
+        long key = key(x, y);
+        int slot = slot(key);
+
+        while (slots[slot] >= 0) {
+
+            if (keys[slot] == key) {
+                return slots[slot];
+            }
+            slot = (slot + 1) & (keys.length - 1);
+        }
+
+        return -1;
+    }
+
+    public int indexOf(Point point) {
+        return indexOf(point.getX(), point.getY());
+    }
+
+    public int span(int from, int to) {
+        //Steps walking forward from one index to the other
+        return Math.floorMod(to - from, points.size());
+    }
+
+    public List<Point> range(int from, int to) {
+        //Points walking forward from "from" included to "to" excluded, wrapping past the end of the contour
+        return new RangeView(normalize(from), span(from, to));
+    }
+
+    public double arcLength(int from, int to) {
+
+        int start = normalize(from);
+        int end = normalize(to);
+
+        return end >= start ? arcLengths[end] - arcLengths[start] : getLength() - arcLengths[start] + arcLengths[end];
+    }
+
+    public double getLength() {
+        return arcLengths[points.size()];
+    }
+
+    public int indexAtArcLength(double length) {
+        //Last index whose distance from the first point along the contour does not exceed length
+
+        double wrapped = ((length % getLength()) + getLength()) % getLength();
+        int index = Arrays.binarySearch(arcLengths, 0, points.size(), wrapped);
+
+        return index >= 0 ? index : -index - 2;
+    }
+
+    public PointList getPoints() {
+        return points;
+    }
+
+    public List<Point> asList() {
+        return points.asList();
+    }
+
+    private class RangeView extends AbstractList<Point> implements RandomAccess {
+
+        private final int from;
+        private final int size;
+
+        private RangeView(int from, int size) {
+            this.from = from;
+            this.size = size;
+        }
+
+        @Override
+        public Point get(int index) {
+
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+            }
+
+            return points.get((from + index) % points.size());
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
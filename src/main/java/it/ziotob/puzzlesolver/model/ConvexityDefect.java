@@ -4,7 +4,6 @@ import it.ziotob.puzzlesolver.utils.PointUtils;
 import javafx.util.Pair;
 import lombok.*;
 
-import java.util.Collections;
 import java.util.List;
 
 @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
@@ -15,18 +14,22 @@ public class ConvexityDefect {
 
     private final Point hullPointA;
     private final Point hullPointB;
-    private final List<Point> convexityPoints;
+    private final PointList convexityPoints;
     private final Point deepestPoint;
     private final Float distance;
 
     public static ConvexityDefect factory(Point hullPointA, Point hullPointB) {
-        return new ConvexityDefect(hullPointA, hullPointB, Collections.emptyList(), null, null);
+        return new ConvexityDefect(hullPointA, hullPointB, new PointList(0), null, null);
     }
 
     public static ConvexityDefect factory(Point hullPointA, Point hullPointB, List<Point> convexityPoints) {
 
         Pair<Point, Float> mostDistantPair = PointUtils.getMostDistantPoint(convexityPoints, hullPointA, hullPointB);
 
-        return new ConvexityDefect(hullPointA, hullPointB, convexityPoints, mostDistantPair.getKey(), mostDistantPair.getValue());
+        return new ConvexityDefect(hullPointA, hullPointB, PointList.of(convexityPoints), mostDistantPair.getKey(), mostDistantPair.getValue());
+    }
+
+    public List<Point> getConvexityPoints() {
+        return convexityPoints.asList();
     }
 }
@@ -0,0 +1,48 @@
+package it.ziotob.puzzlesolver.model;
+
+public class EdgeColors {
+    //Lab colour of a thin band inside each edge, one triplet per profile sample. The reversed copy holds every edge walked
+    //backwards, so comparing two mating edges is a straight loop over both arrays
+
+    public static final int CHANNELS = 3;
+    private static final int EDGE_SIZE = PieceEdges.SAMPLES * CHANNELS;
+
+    private final byte[] colors;
+    private final byte[] reversedColors;
+
+    public EdgeColors(byte[] colors) {
+
+        this.colors = colors;
+        this.reversedColors = new byte[colors.length];
+
+        for (int edge = 0; edge < PieceEdges.EDGES; edge++) {
+            for (int sample = 0; sample < PieceEdges.SAMPLES; sample++) {
+
+                int from = edge * EDGE_SIZE + sample * CHANNELS;
+                int to = edge * EDGE_SIZE + (PieceEdges.SAMPLES - 1 - sample) * CHANNELS;
+                System.arraycopy(colors, from, reversedColors, to, CHANNELS);
+            }
+        }
+    }
+
+    public int getChannel(int edge, int sample, int channel) {
+        return colors[edge * EDGE_SIZE + sample * CHANNELS + channel] & 0xFF;
+    }
+
+    public float mismatch(int edge, EdgeColors other, int otherEdge) {
+        //Mean squared Lab distance per sample, scaled so that a channel differing by 255 everywhere costs 1
+
+        byte[] reversed = other.reversedColors;
+        int offset = edge * EDGE_SIZE;
+        int otherOffset = otherEdge * EDGE_SIZE;
+        int sum = 0;
+
+        for (int i = 0; i < EDGE_SIZE; i++) {
+
+            int difference = (colors[offset + i] & 0xFF) - (reversed[otherOffset + i] & 0xFF);
+            sum += difference * difference;
+        }
+
+        return sum / (float) (PieceEdges.SAMPLES * 255 * 255);
+    }
+}
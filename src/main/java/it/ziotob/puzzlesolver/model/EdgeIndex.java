@@ -0,0 +1,103 @@
+package it.ziotob.puzzlesolver.model;
+
+import it.ziotob.puzzlesolver.utils.KdTree;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class EdgeIndex {
+    //Edges are bucketed by type and by length on a logarithmic scale, each bucket holds a k-d tree over profiles
+    //averaged down to FEATURES values. A query only visits the buckets of the complementary type with a similar
+    //length, takes the nearest candidates in feature space and ranks them by their exact score
+
+    public static final int FEATURES = 8;
+    private static final double LENGTH_TOLERANCE = 0.1;
+    private static final int CANDIDATES_PER_RESULT = 4;
+    private static final int MINIMUM_CANDIDATES = 16;
+
+    private final List<Piece> pieces;
+    private final Map<Long, KdTree> buckets;
+
+    public EdgeIndex(List<Piece> pieces) {
+
+        this.pieces = pieces;
+
+        Map<Long, List<Integer>> edgesByBucket = IntStream.range(0, pieces.size() * PieceEdges.EDGES).boxed()
+                .filter(edgeId -> edges(edgeId).getType(edgeId % PieceEdges.EDGES) != EdgeType.FLAT)
+                .collect(Collectors.groupingBy(edgeId -> bucket(edges(edgeId).getType(edgeId % PieceEdges.EDGES),
+                        lengthBucket(edges(edgeId).getLength(edgeId % PieceEdges.EDGES)))));
+
+        this.buckets = edgesByBucket.entrySet().parallelStream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> tree(entry.getValue())));
+    }
+
+    private KdTree tree(List<Integer> edgeIds) {
+
+        float[] vectors = new float[edgeIds.size() * FEATURES];
+        for (int i = 0; i < edgeIds.size(); i++) {
+            features(edges(edgeIds.get(i)).getProfile(edgeIds.get(i) % PieceEdges.EDGES), false, vectors, i * FEATURES);
+        }
+
+        return new KdTree(vectors, edgeIds.stream().mapToInt(Integer::intValue).toArray(), FEATURES);
+    }
+
+    private static void features(float[] profile, boolean mirrored, float[] features, int offset) {
+        //Averages of consecutive samples. A mirrored profile is walked backwards with its offsets negated, which is how
+        //a mating edge looks from the other piece
+
+        int window = PieceEdges.SAMPLES / FEATURES;
+        for (int feature = 0; feature < FEATURES; feature++) {
+
+            float sum = 0;
+            for (int i = feature * window; i < (feature + 1) * window; i++) {
+                sum += mirrored ? -profile[PieceEdges.SAMPLES - 1 - i] : profile[i];
+            }
+            features[offset + feature] = sum / window;
+        }
+    }
+
+    private PieceEdges edges(int edgeId) {
+        return pieces.get(edgeId / PieceEdges.EDGES).getEdges();
+    }
+
+    private static int lengthBucket(float length) {
+        return (int) Math.floor(Math.log(Math.max(1, length)) / Math.log(1 + LENGTH_TOLERANCE));
+    }
+
+    private static long bucket(EdgeType type, int lengthBucket) {
+        return ((long) type.ordinal() << 32) | (lengthBucket & 0xFFFFFFFFL);
+    }
+
+    public float score(int piece, int edge, int otherPiece, int otherEdge) {
+        return pieces.get(piece).getEdges().score(edge, pieces.get(otherPiece).getEdges(), otherEdge);
+    }
+
+    public List<EdgeMatch> findMatches(int piece, int edge, int k) {
+        //Best k complementary edges of other pieces, best first. Flat edges belong to the frame and never match
+
+        PieceEdges edges = pieces.get(piece).getEdges();
+        EdgeType type = edges.getType(edge);
+
+        if (type == EdgeType.FLAT || k <= 0) {
+            return Collections.emptyList();
+        }
+
+        EdgeType matingType = type == EdgeType.TAB ? EdgeType.BLANK : EdgeType.TAB;
+        int lengthBucket = lengthBucket(edges.getLength(edge));
+        float[] query = new float[FEATURES];
+        features(edges.getProfile(edge), true, query, 0);
+        int candidates = Math.max(MINIMUM_CANDIDATES, k * CANDIDATES_PER_RESULT);
+
+        return IntStream.rangeClosed(lengthBucket - 1, lengthBucket + 1)
+                .mapToObj(bucket -> buckets.get(bucket(matingType, bucket)))
+                .filter(Objects::nonNull)
+                .flatMapToInt(tree -> Arrays.stream(tree.nearest(query, candidates)))
+                .filter(edgeId -> edgeId / PieceEdges.EDGES != piece)
+                .mapToObj(edgeId -> new EdgeMatch(piece, edge, edgeId / PieceEdges.EDGES, edgeId % PieceEdges.EDGES,
+                        score(piece, edge, edgeId / PieceEdges.EDGES, edgeId % PieceEdges.EDGES)))
+                .sorted(Comparator.comparingDouble(EdgeMatch::getScore))
+                .limit(k)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,17 @@
+package it.ziotob.puzzlesolver.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+@RequiredArgsConstructor
+@Getter
+@ToString
+public class EdgeMatch {
+
+    private final int piece;
+    private final int edge;
+    private final int otherPiece;
+    private final int otherEdge;
+    private final float score;
+}
@@ -0,0 +1,9 @@
+package it.ziotob.puzzlesolver.model;
+
+public enum EdgeType {
+    FLAT, TAB, BLANK;
+
+    public boolean fits(EdgeType other) {
+        return (this == TAB && other == BLANK) || (this == BLANK && other == TAB);
+    }
+}
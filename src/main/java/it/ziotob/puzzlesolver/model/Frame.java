@@ -0,0 +1,21 @@
+package it.ziotob.puzzlesolver.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+@Getter
+@ToString(exclude = "placements")
+public class Frame {
+    //Corner and border pieces placed around the grid, clockwise from the top left corner
+
+    private final int rows;
+    private final int columns;
+    private final List<Placement> placements;
+    private final double cost;
+    private final long exploredStates;
+    private final long solveMillis;
+}
@@ -0,0 +1,46 @@
+package it.ziotob.puzzlesolver.model;
+
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+public class HueHistogram {
+
+    public static final int HUE_BINS = 100;
+
+    private final int tolerance;
+    private final int[] counts = new int[HUE_BINS];
+
+    public void addHue(int h) {
+        counts[h]++;
+    }
+
+    public HueHistogram merge(HueHistogram other) {
+
+        for (int h = 0; h < HUE_BINS; h++) {
+            counts[h] += other.counts[h];
+        }
+
+        return this;
+    }
+
+    public boolean[] getBiggestGroupBins() {
+        //Same window as PointsColorGroup.getBiggestGroup: ties go to the lowest hue, upper bound is exclusive
+
+        boolean[] bins = new boolean[HUE_BINS];
+        int biggestIndex = -1;
+
+        for (int h = 0; h < HUE_BINS; h++) {
+            if (counts[h] > 0 && (biggestIndex < 0 || counts[h] > counts[biggestIndex])) {
+                biggestIndex = h;
+            }
+        }
+
+        if (biggestIndex >= 0) {
+            for (int h = Math.max(0, biggestIndex - tolerance); h < Math.min(HUE_BINS, biggestIndex + tolerance); h++) {
+                bins[h] = true;
+            }
+        }
+
+        return bins;
+    }
+}
@@ -0,0 +1,145 @@
+package it.ziotob.puzzlesolver.model;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class Mask {
+
+    @Getter
+    private final int width;
+    @Getter
+    private final int height;
+    private final int wordsPerRow;
+    private final long[] words;
+
+    public Mask(int width, int height) {
+
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = (width + 63) >>> 6;
+        this.words = new long[wordsPerRow * height];
+    }
+
+    private Mask(Mask mask) {
+
+        this.width = mask.width;
+        this.height = mask.height;
+        this.wordsPerRow = mask.wordsPerRow;
+        this.words = mask.words.clone();
+    }
+
+    public static Mask fromPoints(List<Point> points, int width, int height) {
+
+        Mask mask = new Mask(width, height);
+        points.forEach(point -> mask.set(point.getX(), point.getY()));
+
+        return mask;
+    }
+
+    public boolean get(int x, int y) {
+
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return false;
+        }
+
+        return (words[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    public void set(int x, int y) {
+        words[y * wordsPerRow + (x >>> 6)] |= 1L << x;
+    }
+
+    public void clear(int x, int y) {
+        words[y * wordsPerRow + (x >>> 6)] &= ~(1L << x);
+    }
+
+    public int nextSetBit(int x, int y) {
+        //Index of the first set pixel at or after x in row y, -1 if there is none
+
+        if (x >= width) {
+            return -1;
+        }
+
+        int rowStart = y * wordsPerRow;
+        int wordIndex = x >>> 6;
+        long word = words[rowStart + wordIndex] & (-1L << x);
+
+        while (word == 0) {
+
+            if (++wordIndex == wordsPerRow) {
+                return -1;
+            }
+            word = words[rowStart + wordIndex];
+        }
+
+        return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    public int nextClearBit(int x, int y) {
+        //Index of the first clear pixel at or after x in row y, width if there is none
+
+        if (x >= width) {
+            return width;
+        }
+
+        int rowStart = y * wordsPerRow;
+        int wordIndex = x >>> 6;
+        long word = ~words[rowStart + wordIndex] & (-1L << x);
+
+        while (word == 0) {
+
+            if (++wordIndex == wordsPerRow) {
+                return width;
+            }
+            word = ~words[rowStart + wordIndex];
+        }
+
+        return Math.min(width, (wordIndex << 6) + Long.numberOfTrailingZeros(word));
+    }
+
+    public Mask copy() {
+        return new Mask(this);
+    }
+
+    public Mask invert() {
+
+        Mask inverted = new Mask(width, height);
+        long lastWordMask = (width & 63) == 0 ? -1L : (1L << width) - 1;
+
+        for (int y = 0; y < height && wordsPerRow > 0; y++) {
+
+            int rowStart = y * wordsPerRow;
+            for (int i = 0; i < wordsPerRow; i++) {
+                inverted.words[rowStart + i] = ~words[rowStart + i];
+            }
+            inverted.words[rowStart + wordsPerRow - 1] &= lastWordMask;
+        }
+
+        return inverted;
+    }
+
+    public int cardinality() {
+
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+
+        return count;
+    }
+
+    public List<Point> toPoints() {
+
+        List<Point> points = new ArrayList<>(cardinality());
+
+        for (int y = 0; y < height; y++) {
+            for (int x = nextSetBit(0, y); x >= 0; x = nextSetBit(x + 1, y)) {
+                points.add(new Point(x, y));
+            }
+        }
+
+        return points;
+    }
+}
@@ -0,0 +1,107 @@
+package it.ziotob.puzzlesolver.model;
+
+import it.ziotob.puzzlesolver.exception.ApplicationException;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+public class Moments {
+    //Raw image moments up to the second order, m_pq is the sum of x^p * y^q over the pixels
+
+    private long m00;
+    private long m10;
+    private long m01;
+    private long m20;
+    private long m11;
+    private long m02;
+
+    public static Moments of(PointList points) {
+
+        Moments moments = new Moments();
+        points.forEach(moments::add);
+
+        return moments;
+    }
+
+    public void add(int x, int y) {
+
+        m00++;
+        m10 += x;
+        m01 += y;
+        m20 += (long) x * x;
+        m11 += (long) x * y;
+        m02 += (long) y * y;
+    }
+
+    public void remove(int x, int y) {
+
+        m00--;
+        m10 -= x;
+        m01 -= y;
+        m20 -= (long) x * x;
+        m11 -= (long) x * y;
+        m02 -= (long) y * y;
+    }
+
+    public void addRun(int row, int start, int end) {
+        //Pixels from start included to end excluded on the same row, in closed form
+
+        long count = end - start;
+        long sumX = (start + (long) end - 1) * count / 2;
+        long sumXSquared = sumOfSquares(end - 1) - sumOfSquares(start - 1);
+
+        m00 += count;
+        m10 += sumX;
+        m01 += row * count;
+        m20 += sumXSquared;
+        m11 += row * sumX;
+        m02 += (long) row * row * count;
+    }
+
+    private static long sumOfSquares(long n) {
+        return n < 0 ? 0 : n * (n + 1) * (2 * n + 1) / 6;
+    }
+
+    public Moments merge(Moments other) {
+
+        m00 += other.m00;
+        m10 += other.m10;
+        m01 += other.m01;
+        m20 += other.m20;
+        m11 += other.m11;
+        m02 += other.m02;
+
+        return this;
+    }
+
+    public long getArea() {
+        return m00;
+    }
+
+    public Point getCentroid() {
+        //Rounded half up like the BigDecimal sums it replaces
+
+        if (m00 == 0) {
+            throw new ApplicationException("Centroid of an empty region");
+        }
+
+        return new Point((int) roundHalfUp(m10, m00), (int) roundHalfUp(m01, m00));
+    }
+
+    private static long roundHalfUp(long numerator, long denominator) {
+        return numerator >= 0 ? (2 * numerator + denominator) / (2 * denominator) : -((-2 * numerator + denominator) / (2 * denominator));
+    }
+
+    public double getOrientation() {
+        //Principal axis angle in degrees from the central second-order moments, undefined (0) for isotropic regions
+
+        double meanX = (double) m10 / m00;
+        double meanY = (double) m01 / m00;
+        double mu20 = m20 / (double) m00 - meanX * meanX;
+        double mu11 = m11 / (double) m00 - meanX * meanY;
+        double mu02 = m02 / (double) m00 - meanY * meanY;
+
+        return Math.toDegrees(0.5 * Math.atan2(2 * mu11, mu20 - mu02));
+    }
+}
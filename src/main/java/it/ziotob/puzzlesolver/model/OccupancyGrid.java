@@ -0,0 +1,45 @@
+package it.ziotob.puzzlesolver.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+@Getter
+public class OccupancyGrid {
+    //Dense bitmap of a piece in local coordinates, the origin is the top-left corner of its bounding box
+
+    private final Mask mask;
+    private final int originX;
+    private final int originY;
+
+    public static OccupancyGrid of(PointList points) {
+
+        if (points.isEmpty()) {
+            return new OccupancyGrid(new Mask(0, 0), 0, 0);
+        }
+
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxY = Integer.MIN_VALUE;
+
+        for (int i = 0; i < points.size(); i++) {
+
+            minX = Math.min(minX, points.getX(i));
+            minY = Math.min(minY, points.getY(i));
+            maxX = Math.max(maxX, points.getX(i));
+            maxY = Math.max(maxY, points.getY(i));
+        }
+
+        Mask mask = new Mask(maxX - minX + 1, maxY - minY + 1);
+        int originX = minX;
+        int originY = minY;
+        points.forEach((x, y) -> mask.set(x - originX, y - originY));
+
+        return new OccupancyGrid(mask, originX, originY);
+    }
+
+    public boolean isOccupied(int x, int y) {
+        return mask.get(x - originX, y - originY);
+    }
+}
@@ -1,15 +1,41 @@
 package it.ziotob.puzzlesolver.model;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
+import java.awt.geom.Point2D;
 import java.util.List;
+import java.util.function.Supplier;
 
 @RequiredArgsConstructor
 @Getter
 public class OuterLock {
 
-    private final List<Point> borderPoints;
-    private final List<Point> points;
+    private final PointList borderPoints;
+    @Getter(AccessLevel.NONE)
+    private final Supplier<PointList> pointsFill;
     private final List<ConvexityDefect> convexityDefects;
+    //Piece pixels cut off by the lock, its boundary included, and the centroid of its polygon
+    private final long area;
+    private final Point2D centroid;
+    private PointList points;
+
+    public List<Point> getBorderPoints() {
+        return borderPoints.asList();
+    }
+
+    public List<Point> getPoints() {
+        return getPointList().asList();
+    }
+
+    public synchronized PointList getPointList() {
+        //Area is filled on first access, so rejected lock candidates never pay for the fill
+
+        if (points == null) {
+            points = pointsFill.get();
+        }
+
+        return points;
+    }
 }
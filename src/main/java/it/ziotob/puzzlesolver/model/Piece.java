@@ -11,8 +11,21 @@ import java.util.List;
 @ToString
 public class Piece {
 
-    private final List<Point> points;
-    private final List<Point> borderPoints;
+    private final PointList points;
+    private final PointList borderPoints;
     private final Point center;
-    private final List<Point> corners;
+    private final PointList corners;
+    private final PieceEdges edges;
+
+    public List<Point> getPoints() {
+        return points.asList();
+    }
+
+    public List<Point> getBorderPoints() {
+        return borderPoints.asList();
+    }
+
+    public List<Point> getCorners() {
+        return corners.asList();
+    }
 }
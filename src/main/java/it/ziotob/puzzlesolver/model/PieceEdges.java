@@ -0,0 +1,80 @@
+package it.ziotob.puzzlesolver.model;
+
+import lombok.RequiredArgsConstructor;
+
+import java.util.Optional;
+
+@RequiredArgsConstructor
+public class PieceEdges {
+    //The four edges of a piece, clockwise. Profiles are packed edge after edge: SAMPLES offsets each, measured along the
+    //outward normal of the chord between the two corners and divided by the chord length, positive outside the piece
+
+    public static final int EDGES = 4;
+    public static final int SAMPLES = 64;
+    //Weight of the colour mismatch against the shape score, both are close to 0 for mating edges
+    private static final float APPEARANCE_WEIGHT = 0.1f;
+
+    private final float[] profiles;
+    private final float[] lengths;
+    private final EdgeType[] types;
+    private final EdgeColors colors;
+
+    public PieceEdges(float[] profiles, float[] lengths, EdgeType[] types) {
+        this(profiles, lengths, types, null);
+    }
+
+    public float getOffset(int edge, int sample) {
+        return profiles[edge * SAMPLES + sample];
+    }
+
+    public float getLength(int edge) {
+        return lengths[edge];
+    }
+
+    public EdgeType getType(int edge) {
+        return types[edge];
+    }
+
+    public Optional<EdgeColors> getColors() {
+        return Optional.ofNullable(colors);
+    }
+
+    public float[] getProfile(int edge) {
+
+        float[] profile = new float[SAMPLES];
+        System.arraycopy(profiles, edge * SAMPLES, profile, 0, SAMPLES);
+
+        return profile;
+    }
+
+    public float mismatch(int edge, PieceEdges other, int otherEdge) {
+        //Mean squared sum against the other edge walked backwards: a mating edge runs the opposite way with opposite normal
+
+        int start = edge * SAMPLES;
+        int otherEnd = otherEdge * SAMPLES + SAMPLES - 1;
+        float sum = 0;
+
+        for (int i = 0; i < SAMPLES; i++) {
+
+            float difference = profiles[start + i] + other.profiles[otherEnd - i];
+            sum += difference * difference;
+        }
+
+        return sum / SAMPLES;
+    }
+
+    public float lengthDifference(int edge, PieceEdges other, int otherEdge) {
+        return Math.abs(lengths[edge] - other.lengths[otherEdge]) / Math.max(1, Math.max(lengths[edge], other.lengths[otherEdge]));
+    }
+
+    public float score(int edge, PieceEdges other, int otherEdge) {
+        //Profile mismatch plus the squared relative difference of the chord lengths, 0 for a perfect fit.
+        //The colour mismatch is added when both pieces were sampled from an image
+
+        float lengthDifference = lengthDifference(edge, other, otherEdge);
+        float score = mismatch(edge, other, otherEdge) + lengthDifference * lengthDifference;
+
+        return colors == null || other.colors == null ? score :
+                score + APPEARANCE_WEIGHT * colors.mismatch(edge, other.colors, otherEdge);
+    }
+}
@@ -0,0 +1,156 @@
+package it.ziotob.puzzlesolver.model;
+
+import it.ziotob.puzzlesolver.exception.ApplicationException;
+import it.ziotob.puzzlesolver.utils.ColorUtils;
+import it.ziotob.puzzlesolver.utils.PointUtils;
+
+import java.awt.image.BufferedImage;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+public class PieceFactory {
+
+    //Offset, relative to the chord, beyond which an edge is a tab or a blank
+    private static final double LOCK_DEPTH = 0.1;
+    //Depths, in pixels inside the border, of the colour band. The outermost pixels blend with the background
+    private static final int[] BAND_DEPTHS = {3, 5, 7};
+    //Contour points on each side of a sample used to estimate the border direction
+    private static final int NORMAL_SPAN = 3;
+
+    public static Piece factory(RawPiece rawPiece) {
+        return factory(rawPiece, null);
+    }
+
+    public static Piece factory(RawPiece rawPiece, BufferedImage image) {
+
+        Contour border = new Contour(rawPiece.getBorderPointList());
+        List<Point> corners = rawPiece.getCorners();
+
+        if (corners.size() != PieceEdges.EDGES) {
+            throw new ApplicationException("Splitting edges needs " + PieceEdges.EDGES + " corners, found " + corners.size());
+        }
+
+        int[] cornerIndexes = corners.stream()
+                .mapToInt(corner -> cornerIndex(border, corner))
+                .sorted()
+                .toArray();
+
+        return new Piece(rawPiece.getPointList(), rawPiece.getBorderPointList(), rawPiece.getMassCenter(),
+                PointList.of(corners), detectEdges(border, cornerIndexes, image));
+    }
+
+    private static int cornerIndex(Contour border, Point corner) {
+        //Corners come from the lock-free shape, they lie on the border unless a lock touches them
+
+        int index = border.indexOf(corner);
+
+        return index >= 0 ? index : IntStream.range(0, border.size()).boxed()
+                .min(Comparator.comparingDouble(i -> PointUtils.getDistance(border.get(i), corner)))
+                .orElseThrow(() -> new ApplicationException("Unable to place corner on the border"));
+    }
+
+    private static PieceEdges detectEdges(Contour border, int[] cornerIndexes, BufferedImage image) {
+
+        float[] profiles = new float[PieceEdges.EDGES * PieceEdges.SAMPLES];
+        float[] lengths = new float[PieceEdges.EDGES];
+        EdgeType[] types = new EdgeType[PieceEdges.EDGES];
+        byte[] colors = image == null ? null : new byte[PieceEdges.EDGES * PieceEdges.SAMPLES * EdgeColors.CHANNELS];
+
+        for (int edge = 0; edge < PieceEdges.EDGES; edge++) {
+
+            int from = cornerIndexes[edge];
+            int to = cornerIndexes[(edge + 1) % PieceEdges.EDGES];
+            lengths[edge] = (float) PointUtils.getDistance(border.get(from), border.get(to));
+            types[edge] = sampleEdge(border, from, to, profiles, edge * PieceEdges.SAMPLES);
+            if (colors != null) {
+                sampleColors(border, from, to, image, colors, edge * PieceEdges.SAMPLES * EdgeColors.CHANNELS);
+            }
+        }
+
+        return new PieceEdges(profiles, lengths, types, colors == null ? null : new EdgeColors(colors));
+    }
+
+    private static EdgeType sampleEdge(Contour border, int from, int to, float[] profiles, int offset) {
+        //Samples are evenly spaced along the arc, offsets are rotation free since they are taken in the chord frame
+
+        Point start = border.get(from);
+        Point end = border.get(to);
+        double chord = Math.max(1, PointUtils.getDistance(start, end));
+        double ux = (end.getX() - start.getX()) / chord;
+        double uy = (end.getY() - start.getY()) / chord;
+        double startLength = border.arcLength(0, from);
+        double edgeLength = border.arcLength(from, to);
+        double deepest = 0;
+
+        for (int sample = 0; sample < PieceEdges.SAMPLES; sample++) {
+
+            double[] point = pointAtArcLength(border, startLength + edgeLength * sample / (PieceEdges.SAMPLES - 1));
+            double x = point[0] - start.getX();
+            double y = point[1] - start.getY();
+
+            //The border is clockwise on screen, so the outward normal of the chord is (uy, -ux)
+            double offsetValue = (x * uy - y * ux) / chord;
+            profiles[offset + sample] = (float) offsetValue;
+            if (Math.abs(offsetValue) > Math.abs(deepest)) {
+                deepest = offsetValue;
+            }
+        }
+
+        if (deepest > LOCK_DEPTH) {
+            return EdgeType.TAB;
+        } else if (deepest < -LOCK_DEPTH) {
+            return EdgeType.BLANK;
+        } else {
+            return EdgeType.FLAT;
+        }
+    }
+
+    private static void sampleColors(Contour border, int from, int to, BufferedImage image, byte[] colors, int offset) {
+        //Same arc positions as the profile, averaged over a few pixels along the inward normal of the border
+
+        double startLength = border.arcLength(0, from);
+        double edgeLength = border.arcLength(from, to);
+
+        for (int sample = 0; sample < PieceEdges.SAMPLES; sample++) {
+
+            double length = startLength + edgeLength * sample / (PieceEdges.SAMPLES - 1);
+            double[] point = pointAtArcLength(border, length);
+            int index = border.indexAtArcLength(length);
+            Point before = border.get(index - NORMAL_SPAN);
+            Point after = border.get(index + NORMAL_SPAN);
+            double tangent = Math.max(1, PointUtils.getDistance(before, after));
+            double nx = -(after.getY() - before.getY()) / tangent;
+            double ny = (after.getX() - before.getX()) / tangent;
+            int red = 0;
+            int green = 0;
+            int blue = 0;
+
+            for (int depth : BAND_DEPTHS) {
+
+                int x = Math.max(0, Math.min(image.getWidth() - 1, (int) Math.round(point[0] + nx * depth)));
+                int y = Math.max(0, Math.min(image.getHeight() - 1, (int) Math.round(point[1] + ny * depth)));
+                int rgb = image.getRGB(x, y);
+                red += (rgb >> 16) & 0xFF;
+                green += (rgb >> 8) & 0xFF;
+                blue += rgb & 0xFF;
+            }
+
+            int rgb = (red / BAND_DEPTHS.length) << 16 | (green / BAND_DEPTHS.length) << 8 | (blue / BAND_DEPTHS.length);
+            ColorUtils.toLab(rgb, colors, offset + sample * EdgeColors.CHANNELS);
+        }
+    }
+
+    private static double[] pointAtArcLength(Contour border, double length) {
+        //Linear interpolation between the two contour points around the given arc length
+
+        double wrapped = length % border.getLength();
+        int index = border.indexAtArcLength(wrapped);
+        Point a = border.get(index);
+        Point b = border.get(index + 1);
+        double step = border.arcLength(index, index + 1);
+        double t = step == 0 ? 0 : Math.max(0, Math.min(1, (wrapped - border.arcLength(0, index)) / step));
+
+        return new double[]{a.getX() + t * (b.getX() - a.getX()), a.getY() + t * (b.getY() - a.getY())};
+    }
+}
@@ -0,0 +1,21 @@
+package it.ziotob.puzzlesolver.model;
+
+import java.util.stream.IntStream;
+
+public enum PieceKind {
+    INTERIOR, BORDER, CORNER;
+
+    public static PieceKind of(PieceEdges edges) {
+        //By number of flat edges, pieces of one row or column puzzles count as corners
+
+        long flatEdges = IntStream.range(0, PieceEdges.EDGES)
+                .filter(edge -> edges.getType(edge) == EdgeType.FLAT)
+                .count();
+
+        return flatEdges == 0 ? INTERIOR : flatEdges == 1 ? BORDER : CORNER;
+    }
+
+    public static PieceKind of(int borderSides) {
+        return borderSides == 0 ? INTERIOR : borderSides == 1 ? BORDER : CORNER;
+    }
+}
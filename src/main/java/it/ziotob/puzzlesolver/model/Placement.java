@@ -0,0 +1,21 @@
+package it.ziotob.puzzlesolver.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+@RequiredArgsConstructor
+@Getter
+@ToString
+public class Placement {
+    //Rotation is in clockwise quarter turns: edge e of the piece lies on side (e + rotation) % 4, sides clockwise from the top
+
+    private final int piece;
+    private final int row;
+    private final int column;
+    private final int rotation;
+
+    public int getEdge(int side) {
+        return (side - rotation + PieceEdges.EDGES) % PieceEdges.EDGES;
+    }
+}
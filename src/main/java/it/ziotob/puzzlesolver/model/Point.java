@@ -11,6 +11,6 @@ import lombok.ToString;
 @ToString
 public class Point {
 
-    private final Integer x;
-    private final Integer y;
+    private final int x;
+    private final int y;
 }
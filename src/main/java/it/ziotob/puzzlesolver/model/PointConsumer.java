@@ -0,0 +1,7 @@
+package it.ziotob.puzzlesolver.model;
+
+@FunctionalInterface
+public interface PointConsumer {
+
+    void accept(int x, int y);
+}
@@ -0,0 +1,112 @@
+package it.ziotob.puzzlesolver.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+public class PointList {
+    //Coordinates packed as x0, y0, x1, y1... in a single int[], 8 bytes per point instead of a Point with two Integers
+
+    private int size;
+    private int[] coordinates;
+
+    public PointList() {
+        this(16);
+    }
+
+    public PointList(int capacity) {
+        coordinates = new int[Math.max(1, capacity) * 2];
+    }
+
+    public static PointList of(List<Point> points) {
+
+        PointList pointList = new PointList(points.size());
+        points.forEach(pointList::add);
+
+        return pointList;
+    }
+
+    public void add(int x, int y) {
+
+        if (size * 2 == coordinates.length) {
+            coordinates = Arrays.copyOf(coordinates, coordinates.length * 2);
+        }
+
+        coordinates[size * 2] = x;
+        coordinates[size * 2 + 1] = y;
+        size++;
+    }
+
+    public void removeLast() {
+
+        if (size == 0) {
+            throw new IndexOutOfBoundsException("Removing from an empty PointList");
+        }
+
+        size--;
+    }
+
+    public void add(Point point) {
+        add(point.getX(), point.getY());
+    }
+
+    public void addAll(PointList other) {
+
+        if ((size + other.size) * 2 > coordinates.length) {
+            coordinates = Arrays.copyOf(coordinates, Math.max(coordinates.length * 2, (size + other.size) * 2));
+        }
+
+        System.arraycopy(other.coordinates, 0, coordinates, size * 2, other.size * 2);
+        size += other.size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getX(int index) {
+        return coordinates[index * 2];
+    }
+
+    public int getY(int index) {
+        return coordinates[index * 2 + 1];
+    }
+
+    public Point get(int index) {
+
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+
+        return new Point(coordinates[index * 2], coordinates[index * 2 + 1]);
+    }
+
+    public void forEach(PointConsumer consumer) {
+
+        for (int i = 0; i < size * 2; i += 2) {
+            consumer.accept(coordinates[i], coordinates[i + 1]);
+        }
+    }
+
+    public List<Point> asList() {
+        return new PointListView();
+    }
+
+    private class PointListView extends AbstractList<Point> implements RandomAccess {
+
+        @Override
+        public Point get(int index) {
+            return PointList.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -11,16 +11,40 @@ import java.util.stream.Stream;
 @Getter
 public class RawPiece {
 
-    private final List<Point> points;
-    private final List<Point> borderPoints;
-    private final List<Point> hullPoints;
+    private final PointList points;
+    private final PointList borderPoints;
+    private final PointList hullPoints;
     private final List<ConvexityDefect> convexityDefects;
     private final Point center;
     private final List<OuterLock> outerLocks;
     private final List<InnerLock> innerLocks;
     private final Point massCenter;
-    private final List<Point> corners;
-    private final Integer rotationAngle;
+    private final PointList corners;
+    private final double rotationAngle;
+
+    public List<Point> getPoints() {
+        return points.asList();
+    }
+
+    public List<Point> getBorderPoints() {
+        return borderPoints.asList();
+    }
+
+    public List<Point> getHullPoints() {
+        return hullPoints.asList();
+    }
+
+    public List<Point> getCorners() {
+        return corners.asList();
+    }
+
+    public PointList getPointList() {
+        return points;
+    }
+
+    public PointList getBorderPointList() {
+        return borderPoints;
+    }
 
     public boolean isFullyDetected() {
 
@@ -1,11 +1,11 @@
 package it.ziotob.puzzlesolver.model;
 
 import it.ziotob.puzzlesolver.exception.ApplicationException;
+import it.ziotob.puzzlesolver.utils.ContourTracer;
+import it.ziotob.puzzlesolver.utils.Metrics;
 import it.ziotob.puzzlesolver.utils.PointUtils;
 import javafx.util.Pair;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -13,202 +13,297 @@ import java.util.stream.Stream;
 
 public class RawPieceFactory {
 
+    private static final double LOCK_CIRCULARITY = 0.08;
+    private static final double LOCK_CIRCULARITY_TOLERANCE = 0.018;
+    //Largest share of the piece a tab can cut off, the perimeter between two defects on different edges takes far more
+    private static final double MAX_OUTER_LOCK_SHARE = 0.25;
+
     public static RawPiece factory(List<Point> points) {
+        return factory(PointList.of(points), Collections.emptyList());
+    }
+
+    public static RawPiece factory(PointList points) {
         return factory(points, Collections.emptyList());
     }
 
     public static RawPiece factory(List<Point> points, List<Point> extraHullPoints) {
+        return factory(PointList.of(points), extraHullPoints);
+    }
 
-        AbstractMap.SimpleEntry<BigDecimal, BigDecimal> sums = points.parallelStream()
-                .map(point -> new AbstractMap.SimpleEntry<>(BigDecimal.valueOf(point.getX()), BigDecimal.valueOf(point.getY())))
-                .reduce((a, b) -> new AbstractMap.SimpleEntry<>(a.getKey().add(b.getKey()), a.getValue().add(b.getValue())))
-                .orElse(new AbstractMap.SimpleEntry<>(BigDecimal.ZERO, BigDecimal.ZERO));
-        BigDecimal midX = sums.getKey().divide(BigDecimal.valueOf(points.size()), 0, RoundingMode.HALF_UP);
-        BigDecimal midY = sums.getValue().divide(BigDecimal.valueOf(points.size()), 0, RoundingMode.HALF_UP);
-
-        Point center = new Point(midX.intValue(), midY.intValue());
-
-        List<Point> borderPoints = PointUtils.sortClockwise(sortBorders(detectBorderPoints(points)));
-        List<Point> convexHull = PointUtils.sortWithBorder(Stream.concat(
-                PointUtils.convexHull(borderPoints).stream(),
-                extraHullPoints.stream()).collect(Collectors.toList()),
-                borderPoints);
-        List<ConvexityDefect> convexityDefects = discardConvexityImperfections(detectConvexityDefects(borderPoints, convexHull));
-        convexityDefects = sortClockwise(convexityDefects, borderPoints);
-        List<OuterLock> outerLocks = detectOuterLocks(convexityDefects, borderPoints, points);
+    public static RawPiece factory(PointList points, Moments moments) {
+        return factory(points, moments, Collections.emptyList());
+    }
+
+    public static RawPiece factory(PointList pointList, List<Point> extraHullPoints) {
+        return factory(pointList, Moments.of(pointList), extraHullPoints);
+    }
+
+    public static RawPiece factory(PointList pointList, Moments moments, List<Point> extraHullPoints) {
+        //Moments come from the labeler when available, the lock-free shape moments are derived from them lock by lock
+
+        Metrics.PieceContext piece = Metrics.piece(pointList.size());
+        Metrics.Timer pieceTimer = Metrics.start(Metrics.Stage.PIECE, piece);
+        Point center = moments.getCentroid();
+
+        Metrics.Timer timer = Metrics.start(Metrics.Stage.BORDERS, piece);
+        OccupancyGrid grid = OccupancyGrid.of(pointList);
+        Contour border = new Contour(ContourTracer.trace(grid));
+        piece.setBorderLength(border.size());
+        timer.stop(border.size());
+
+        timer = Metrics.start(Metrics.Stage.HULL, piece);
+        int[] borderHullIndexes = PointUtils.convexHullIndexes(border.asList());
+        int[] hullIndexes = IntStream.concat(
+                Arrays.stream(borderHullIndexes),
+                extraHullPoints.stream().mapToInt(border::indexOf).filter(index -> index >= 0))
+                .distinct().sorted().toArray();
+        List<Point> borderHull = Arrays.stream(borderHullIndexes).mapToObj(border::get).collect(Collectors.toList());
+        List<Point> convexHull = Arrays.stream(hullIndexes).mapToObj(border::get).collect(Collectors.toList());
+        timer.stop(convexHull.size());
+
+        timer = Metrics.start(Metrics.Stage.DEFECTS, piece);
+        List<ConvexityDefect> convexityDefects = discardConvexityImperfections(detectConvexityDefects(border, hullIndexes));
+        piece.setConvexityDefects(convexityDefects.size());
+        timer.stop(convexityDefects.size());
+
+        timer = Metrics.start(Metrics.Stage.OUTER_LOCKS, piece);
+        List<OuterLock> outerLocks = detectOuterLocks(convexityDefects, border, grid, moments.getArea());
         List<ConvexityDefect> convexityDefectsNoOuterLocks = excludeOuterLocks(convexityDefects, outerLocks);
-        List<InnerLock> innerLocks = detectInnerLocks(convexityDefectsNoOuterLocks, borderPoints, points);
+        timer.stop(outerLocks.size());
+
+        timer = Metrics.start(Metrics.Stage.INNER_LOCKS, piece);
+        List<InnerLock> innerLocks = detectInnerLocks(convexityDefectsNoOuterLocks, border, grid);
+        timer.stop(innerLocks.size());
 
-        List<Point> shape = excludeLocks(points, outerLocks, innerLocks);
-        Point centerMass = detectMassCenter(shape).orElseThrow(() -> new ApplicationException("Unable to detect center mass"));
-        List<Point> corners = detectCorners(shape, centerMass);
+        timer = Metrics.start(Metrics.Stage.CORNERS, piece);
+        Point centerMass = detectCenterMass(moments, outerLocks, innerLocks);
+        List<Point> corners = detectCorners(border, centerMass, outerLocks, innerLocks);
+        timer.stop(corners.size());
 
-        Integer alpha = detectAlpha(corners, centerMass);
+        //The corners bound the square body of the piece, while a hull with tabs on two sides can fit a tilted rectangle
+        timer = Metrics.start(Metrics.Stage.ALPHA, piece);
+        double alpha = detectOrientation(corners.size() == 4 ? PointUtils.convexHull(corners) : borderHull);
+        timer.stop();
+        pieceTimer.stop(pointList.size());
 
-        return new RawPiece(points, borderPoints, convexHull, convexityDefects, center, outerLocks, innerLocks, centerMass, corners, alpha);
+        return new RawPiece(pointList, border.getPoints(), PointList.of(convexHull), convexityDefects, center,
+                outerLocks, innerLocks, centerMass, PointList.of(corners), alpha);
     }
 
-    private static Integer detectAlpha(List<Point> corners, Point centerMass) {
+    public static double detectOrientation(List<Point> convexHull) {
+        //Rotation in degrees, within [-45, 45), that aligns the minimum area rectangle around the hull to the image axes
 
-        Point cornerPoint = corners.stream().findFirst().orElseThrow(() -> new ApplicationException("Detecting alpha without corners"));
-        Point cornerPoint1 = findClosest(corners, cornerPoint, Collections.singletonList(cornerPoint))
-                .orElseThrow(() -> new ApplicationException("Unable to detect cornerPoint1"));
-        Point cornerPoint2 = findClosest(corners, cornerPoint1, Arrays.asList(cornerPoint, cornerPoint1))
-                .orElseThrow(() -> new ApplicationException("Unable to detect cornerPoint2"));
-        Point cornerPoint3 = findClosest(corners, cornerPoint2, Arrays.asList(cornerPoint, cornerPoint1, cornerPoint2))
-                .orElseThrow(() -> new ApplicationException("Unable to detect cornerPoint3"));
+        double alpha = -PointUtils.minimumAreaRectangleAngle(convexHull);
+        double aligned = ((alpha % 90) + 90) % 90;
 
-        Point originalCenter1 = new Point((cornerPoint.getX() + cornerPoint1.getX()) / 2, (cornerPoint.getY() + cornerPoint1.getY()) / 2);
-        Point originalCenter2 = new Point((cornerPoint2.getX() + cornerPoint3.getX()) / 2, (cornerPoint2.getY() + cornerPoint3.getY()) / 2);
+        return aligned >= 45 ? aligned - 90 : aligned;
+    }
 
-        Point center1 = originalCenter1;
-        Point center2 = originalCenter2;
-        int alpha = 0;
-        Pair<Integer, Integer> best = new Pair<>(alpha, Integer.MAX_VALUE);
+    private static Point detectCenterMass(Moments moments, List<OuterLock> outerLocks, List<InnerLock> innerLocks) {
+        //Center of mass of the piece without outer locks and with inner ones filled, from the area and centroid of the
+        //lock polygons so that the lock pixels are never filled
 
-        while (best.getValue() != 0 && alpha < 90) {
+        double area = moments.getArea();
+        double sumX = moments.getM10();
+        double sumY = moments.getM01();
 
-            center1 = PointUtils.rotate(originalCenter1, centerMass, alpha);
-            center2 = PointUtils.rotate(originalCenter2, centerMass, alpha);
-            int bestDistance = Math.min(Math.abs(center1.getX() - center2.getX()), Math.abs(center1.getY() - center2.getY()));
+        for (OuterLock lock : outerLocks) {
 
-            if (bestDistance < best.getValue()) {
-                best = new Pair<>(alpha, bestDistance);
-            }
-            alpha++;
+            area -= lock.getArea();
+            sumX -= lock.getArea() * lock.getCentroid().getX();
+            sumY -= lock.getArea() * lock.getCentroid().getY();
         }
+        for (InnerLock lock : innerLocks) {
 
-        alpha = best.getKey();
+            area += lock.getArea();
+            sumX += lock.getArea() * lock.getCentroid().getX();
+            sumY += lock.getArea() * lock.getCentroid().getY();
+        }
 
-        if (Math.abs(alpha - 90) < alpha) {
-            return alpha - 90;
-        } else {
-            return alpha;
+        if (area <= 0) {
+            throw new ApplicationException("Unable to detect center mass");
         }
+
+        return new Point((int) Math.round(sumX / area), (int) Math.round(sumY / area));
     }
 
-    private static Optional<Point> findClosest(List<Point> corners, Point cornerPoint, List<Point> excluding) {
+    private static List<Point> detectCorners(Contour border, Point center, List<OuterLock> outerLocks, List<InnerLock> innerLocks) {
+        //Farthest points from the center along the border with the locks cut out, at least an eighth of it apart so the
+        //result does not depend on where the trace starts: each pass takes the farthest point not too close to the
+        //corners already taken
+
+        List<Point> candidates = excludeLocks(border, Stream.concat(
+                outerLocks.stream().map(OuterLock::getBorderPoints),
+                innerLocks.stream().map(InnerLock::getBorderPoints))
+                .collect(Collectors.toList()));
+        double[] distances = new double[candidates.size()];
+        for (int i = 0; i < distances.length; i++) {
+            distances[i] = PointUtils.getDistance(candidates.get(i), center);
+        }
 
-        return corners.stream()
-                .filter(p -> !excluding.contains(p))
-                .min(Comparator.comparingDouble(p -> PointUtils.getDistance(p, cornerPoint)));
-    }
+        int minimumGap = candidates.size() / 8;
+        int[] cornerIndexes = new int[4];
+        int corners = 0;
 
-    private static List<Point> detectCorners(List<Point> shape, Point center) {
+        while (corners < cornerIndexes.length) {
 
-        List<Point> borders = sortBorders(detectBorderPoints(shape));
-        List<List<Point>> dividedBorders = divideBorders(borders);
+            int farthest = -1;
+            for (int i = 0; i < distances.length; i++) {
+                if ((farthest < 0 || distances[i] > distances[farthest])
+                        && isFarFromCorners(i, cornerIndexes, corners, minimumGap, distances.length)) {
+                    farthest = i;
+                }
+            }
 
-        return dividedBorders.stream()
-                .map(list -> list.stream()
-                        .max(Comparator.comparingDouble(point -> PointUtils.getDistance(point, center))))
-                .map(Optional::get)
-                .sorted(Comparator.comparingDouble(point -> PointUtils.getDistance(point, center) * -1))
-                .limit(4)
+            if (farthest < 0) {
+                break;
+            }
+            cornerIndexes[corners++] = farthest;
+        }
+
+        return Arrays.stream(cornerIndexes, 0, corners)
+                .mapToObj(candidates::get)
                 .collect(Collectors.toList());
     }
 
-    private static List<List<Point>> divideBorders(List<Point> borders) {
+    private static List<Point> excludeLocks(Contour border, List<List<Point>> locks) {
+        //Border of the piece without outer locks and with inner ones filled: the contour of each lock is replaced by
+        //its closing segment, ordered from the side where the contour starts
 
-        final int segmentSize = borders.size() / 4;
-        return IntStream.range(0, borders.size())
-                .mapToObj(i -> new Pair<>(i, borders.get(i)))
-                .collect(Collectors.groupingBy(e -> e.getKey() / segmentSize))
-                .values().stream()
-                .map(pairList -> pairList.stream().map(Pair::getValue).collect(Collectors.toList()))
-                .collect(Collectors.toList());
-    }
+        boolean[] lockPoints = new boolean[border.size()];
+        Map<Integer, List<Point>> segments = new HashMap<>();
+
+        for (List<Point> lock : locks) {
+
+            int start = -1;
+            List<Point> segment = new ArrayList<>();
+            for (Point point : lock) {
+
+                int index = border.indexOf(point);
+                if (index < 0) {
+                    segment.add(point);
+                } else {
 
-    private static Optional<Point> detectMassCenter(List<Point> shape) {
-
-        return shape.stream()
-                .map(point -> new Pair<>(BigDecimal.valueOf(point.getX()), BigDecimal.valueOf(point.getY())))
-                .reduce((prev, curr) -> new Pair<>(prev.getKey().add(curr.getKey()), prev.getValue().add(curr.getValue())))
-                .map(sums ->
-                        new Point(
-                                sums.getKey().divide(BigDecimal.valueOf(shape.size()), 0, RoundingMode.HALF_UP).intValue(),
-                                sums.getValue().divide(BigDecimal.valueOf(shape.size()), 0, RoundingMode.HALF_UP).intValue()
-                        )
-                );
+                    lockPoints[index] = true;
+                    start = start < 0 ? index : start;
+                }
+            }
+
+            if (start >= 0) {
+
+                Point startPoint = border.get(start);
+                segment.sort(Comparator.comparingDouble(point -> PointUtils.getDistance(point, startPoint)));
+                segments.put(start, segment);
+            }
+        }
+
+        List<Point> points = new ArrayList<>(border.size());
+        for (int i = 0; i < border.size(); i++) {
+
+            points.addAll(segments.getOrDefault(i, Collections.emptyList()));
+            if (!lockPoints[i]) {
+                points.add(border.get(i));
+            }
+        }
+
+        return points;
     }
 
-    private static List<Point> excludeLocks(List<Point> points, List<OuterLock> outerLocks, List<InnerLock> innerLocks) {
+    private static boolean isFarFromCorners(int index, int[] cornerIndexes, int corners, int minimumGap, int size) {
 
-        Set<Point> outerLocksPoints = outerLocks.stream()
-                .flatMap(lock -> lock.getPoints().stream())
-                .collect(Collectors.toSet());
-        Stream<Point> innerLocksPoints = innerLocks.stream()
-                .flatMap(lock -> lock.getPoints().stream());
+        for (int corner = 0; corner < corners; corner++) {
+            if (cyclicDistance(index, cornerIndexes[corner], size) < minimumGap) {
+                return false;
+            }
+        }
 
-        return Stream.concat(
-                innerLocksPoints,
-                points.stream().filter(point -> !outerLocksPoints.contains(point))
-        ).collect(Collectors.toList());
+        return true;
     }
 
-    private static List<InnerLock> detectInnerLocks(List<ConvexityDefect> convexityDefects, List<Point> borderPoints, List<Point> points) {
+    private static int cyclicDistance(int indexA, int indexB, int size) {
+
+        int distance = Math.abs(indexA - indexB);
+        return Math.min(distance, size - distance);
+    }
 
-        List<Point> pointsNegative = PointUtils.negative(points);
+    static List<InnerLock> detectInnerLocks(List<ConvexityDefect> convexityDefects, Contour border, OccupancyGrid grid) {
 
         return convexityDefects.stream()
-                .map(convexityDefect -> detectInnerLock(convexityDefect, borderPoints, pointsNegative))
+                .map(convexityDefect -> detectInnerLock(convexityDefect, border, grid))
                 .filter(Optional::isPresent)
                 .map(Optional::get)
                 .collect(Collectors.toList());
     }
 
-    private static Optional<InnerLock> detectInnerLock(ConvexityDefect convexityDefect, List<Point> borderPoints, List<Point> externalPoints) {
+    private static Optional<InnerLock> detectInnerLock(ConvexityDefect convexityDefect, Contour border, OccupancyGrid grid) {
 
-        Pair<Point, Point> closestHullPoints = bestMinHullPoints(convexityDefect.getHullPointA(), convexityDefect.getHullPointB(), borderPoints);
+        Pair<Integer, Integer> closestHullIndexes = bestMinHullIndexes(indexOf(border, convexityDefect.getHullPointA()), indexOf(border, convexityDefect.getHullPointB()), border);
+        List<Point> contour = getClockwisePerimeterBetween(border, closestHullIndexes.getKey(), closestHullIndexes.getValue());
         List<Point> perimeter = Stream.concat(
-                getClockwisePerimeterBetween(borderPoints, closestHullPoints.getKey(), closestHullPoints.getValue()).stream(),
-                PointUtils.segmentBetween(closestHullPoints.getKey(), closestHullPoints.getValue()).stream())
+                contour.stream(),
+                PointUtils.segmentBetween(border.get(closestHullIndexes.getKey()), border.get(closestHullIndexes.getValue())).stream())
                 .distinct().collect(Collectors.toList());
 
-        List<Point> area = extractArea(perimeter, externalPoints);
-
-        BigDecimal circularityRate = BigDecimal.valueOf(area.size()).divide(BigDecimal.valueOf(perimeter.size()).pow(2), 5, RoundingMode.HALF_UP);
-        BigDecimal epsilon = new BigDecimal("0.018");
-        BigDecimal referenceValue = new BigDecimal("0.08");
+        //Pick's theorem: pixels strictly inside the closed contour, the lock is the background enclosed by the piece
+        double area = PointUtils.polygonArea(contour);
+        int boundary = PointUtils.boundaryLatticePoints(contour);
+        long areaSize = Math.max(0, Math.round(area - boundary / 2.0 + 1));
 
-        if (circularityRate.subtract(referenceValue).abs().compareTo(epsilon) <= 0) {
-            return Optional.of(new InnerLock(perimeter, area, convexityDefect));
+        if (isLockShaped(areaSize, perimeter.size())) {
+            return Optional.of(new InnerLock(PointList.of(perimeter), () -> fillLock(contour, perimeter, grid, false), convexityDefect,
+                    areaSize, PointUtils.polygonCentroid(contour)));
         } else {
             return Optional.empty();
         }
     }
 
-    private static Pair<Point, Point> bestMinHullPoints(Point hullPointA, Point hullPointB, List<Point> perimeter) {
-        //Assume hullPointA is clockwise to hullPointB
+    private static boolean isLockShaped(long areaSize, int perimeterSize) {
+        return circularityError(areaSize, perimeterSize) <= LOCK_CIRCULARITY_TOLERANCE;
+    }
 
-        double distance = PointUtils.getDistance(hullPointA, hullPointB);
-        double oldDistance = distance;
+    private static double circularityError(long areaSize, int perimeterSize) {
 
-        int index = 0;
-        while (!perimeter.get(index).equals(hullPointA)) {
-            index = (index + 1) % perimeter.size();
-        }
+        double circularityRate = (double) areaSize / ((double) perimeterSize * perimeterSize);
+
+        return Math.abs(circularityRate - LOCK_CIRCULARITY);
+    }
+
+    private static Pair<Integer, Integer> bestMinHullIndexes(int hullIndexA, int hullIndexB, Contour border) {
+        //Assume hullPointA is clockwise to hullPointB, both walks stay within the defect span
 
-        while ((distance = PointUtils.getDistance(perimeter.get(index), hullPointB)) <= oldDistance) {
+        int span = border.span(hullIndexA, hullIndexB);
+        Point hullPointB = border.get(hullIndexB);
+        double oldDistance = PointUtils.getDistance(border.get(hullIndexA), hullPointB);
+        double distance = oldDistance;
+
+        int index = hullIndexA;
+        for (int steps = 0; steps <= span && (distance = PointUtils.getDistance(border.get(index), hullPointB)) <= oldDistance; steps++) {
 
             oldDistance = distance;
-            index = (index + 1) % perimeter.size();
+            index = border.normalize(index + 1);
         }
-        Point bestA = perimeter.get(index);
+        int bestA = index;
+        Point bestPointA = border.get(bestA);
         oldDistance = distance;
 
-        while (!perimeter.get(index).equals(hullPointB)) {
-            index = (index + 1) % perimeter.size();
+        index = hullIndexB;
+        for (int steps = 0; steps <= span && (distance = PointUtils.getDistance(border.get(index), bestPointA)) <= oldDistance; steps++) {
+
+            oldDistance = distance;
+            index = border.normalize(index - 1);
         }
 
-        while ((distance = PointUtils.getDistance(perimeter.get(index), bestA)) <= oldDistance) {
+        return new Pair<>(bestA, index);
+    }
 
-            oldDistance = distance;
-            index = (index - 1) < 0 ? perimeter.size() - 1 : index - 1;
+    private static int indexOf(Contour border, Point point) {
+
+        int index = border.indexOf(point);
+        if (index < 0) {
+            throw new ApplicationException("Point " + point + " is not on the piece border");
         }
-        Point bestB = perimeter.get(index);
 
-        return new Pair<>(bestA, bestB);
+        return index;
     }
 
     private static List<ConvexityDefect> excludeOuterLocks(List<ConvexityDefect> convexityDefects, List<OuterLock> outerLocks) {
@@ -220,118 +315,118 @@ public class RawPieceFactory {
                 .collect(Collectors.toList());
     }
 
-    private static List<OuterLock> detectOuterLocks(List<ConvexityDefect> convexityDefects, List<Point> borderPoints, List<Point> points) {
+    static List<OuterLock> detectOuterLocks(List<ConvexityDefect> convexityDefects, Contour border, OccupancyGrid grid, long pieceArea) {
+        //Any two consecutive defects may be the shoulders of a tab, but a blank next to a tab can pass for one along with
+        //the tab's shoulder. Pairs taking no defect that is a lock by itself come first, then the ones closest to the lock
+        //circularity, and each pair is kept while both its defects are free. Locks stay in the order of their defects
 
-        List<OuterLock> outerLocks = new ArrayList<>();
+        int size = convexityDefects.size();
+        boolean[] lockShaped = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            lockShaped[i] = detectInnerLock(convexityDefects.get(i), border, grid).isPresent();
+        }
 
-        for (int i = 1; i <= convexityDefects.size(); i++) {
+        List<Pair<Integer, OuterLock>> candidates = IntStream.range(0, size)
+                .mapToObj(i -> detectOuterLock(convexityDefects.get(i), convexityDefects.get((i + 1) % size), border, grid, pieceArea)
+                        .map(outerLock -> new Pair<>(i, outerLock)))
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .sorted(Comparator.<Pair<Integer, OuterLock>>comparingInt(candidate -> (lockShaped[candidate.getKey()] ? 1 : 0)
+                        + (lockShaped[(candidate.getKey() + 1) % size] ? 1 : 0))
+                        .thenComparingDouble(candidate -> circularityError(candidate.getValue().getArea(),
+                                candidate.getValue().getBorderPoints().size())))
+                .collect(Collectors.toList());
 
-            Optional<OuterLock> outerLockOpt = detectOuterLock(convexityDefects.get(i - 1), convexityDefects.get(i % convexityDefects.size()), borderPoints, points);
-            if (outerLockOpt.isPresent()) {
+        boolean[] taken = new boolean[size];
+        OuterLock[] outerLocks = new OuterLock[size];
 
-                outerLocks.add(outerLockOpt.get());
-                i++;
+        for (Pair<Integer, OuterLock> candidate : candidates) {
+
+            int first = candidate.getKey();
+            int second = (first + 1) % size;
+            if (!taken[first] && !taken[second]) {
+
+                taken[first] = true;
+                taken[second] = true;
+                outerLocks[first] = candidate.getValue();
             }
         }
 
-        return outerLocks;
+        return Arrays.stream(outerLocks).filter(Objects::nonNull).collect(Collectors.toList());
     }
 
-    private static Optional<OuterLock> detectOuterLock(ConvexityDefect convexityDefectOne, ConvexityDefect convexityDefectTwo, List<Point> borderPoints, List<Point> points) {
+    private static Optional<OuterLock> detectOuterLock(ConvexityDefect convexityDefectOne, ConvexityDefect convexityDefectTwo, Contour border, OccupancyGrid grid,
+                                                       long pieceArea) {
 
+        List<Point> contour = getClockwisePerimeterBetween(border,
+                indexOf(border, convexityDefectOne.getDeepestPoint()), indexOf(border, convexityDefectTwo.getDeepestPoint()));
         List<Point> perimeter = Stream.concat(
-                getClockwisePerimeterBetween(borderPoints, convexityDefectOne.getDeepestPoint(), convexityDefectTwo.getDeepestPoint()).stream(),
+                contour.stream(),
                 PointUtils.segmentBetween(convexityDefectOne.getDeepestPoint(), convexityDefectTwo.getDeepestPoint()).stream())
                 .distinct().collect(Collectors.toList());
 
-        List<Point> area = extractArea(perimeter, points);
-        area.addAll(perimeter);
+        //Pick's theorem: pixels inside the closed contour plus the ones on it, the lock is the part of the piece cut by the segment
+        double area = PointUtils.polygonArea(contour);
+        int boundary = PointUtils.boundaryLatticePoints(contour);
+        long areaSize = Math.round(area + boundary / 2.0 + 1);
+
+        if (areaSize <= pieceArea * MAX_OUTER_LOCK_SHARE && isLockShaped(areaSize, perimeter.size())) {
+            return Optional.of(new OuterLock(PointList.of(perimeter), () -> {
 
-        BigDecimal circularityRate = BigDecimal.valueOf(area.size()).divide(BigDecimal.valueOf(perimeter.size()).pow(2), 5, RoundingMode.HALF_UP);
-        BigDecimal epsilon = new BigDecimal("0.018");
-        BigDecimal referenceValue = new BigDecimal("0.08");
+                PointList lockPoints = fillLock(contour, perimeter, grid, true);
+                perimeter.forEach(lockPoints::add);
 
-        if (circularityRate.subtract(referenceValue).abs().compareTo(epsilon) <= 0) {
-            return Optional.of(new OuterLock(perimeter, area, Arrays.asList(convexityDefectOne, convexityDefectTwo)));
+                return lockPoints;
+            }, Arrays.asList(convexityDefectOne, convexityDefectTwo), areaSize, PointUtils.polygonCentroid(contour)));
         } else {
             return Optional.empty();
         }
     }
 
-    private static List<Point> extractArea(List<Point> perimeter, List<Point> points) {
+    private static PointList fillLock(List<Point> contour, List<Point> perimeter, OccupancyGrid grid, boolean pieceSide) {
+        //Even-odd scanline fill of the closed contour limited to the lock bounding box. Perimeter pixels are left out,
+        //the others are kept when they lie on the requested side of the piece: inside for outer locks, background for inner ones
 
-        List<Point> area = new ArrayList<>();
-        Map<Integer, List<Integer>> matrix = new HashMap<>();
-        for (Point point : points) {
+        int minX = perimeter.stream().mapToInt(Point::getX).min().orElse(0);
+        int minY = perimeter.stream().mapToInt(Point::getY).min().orElse(0);
+        int maxX = perimeter.stream().mapToInt(Point::getX).max().orElse(-1);
+        int maxY = perimeter.stream().mapToInt(Point::getY).max().orElse(-1);
 
-            if (!matrix.containsKey(point.getX())) {
-                matrix.put(point.getX(), new ArrayList<>());
-            }
-            matrix.get(point.getX()).add(point.getY());
-        }
-        Set<Point> perimeterSet = new HashSet<>(perimeter);
-        List<Point> pointsToCheck = new ArrayList<>();
-
-        Point startPoint = PointUtils.detectInternalPoint(perimeter, points)
-                .orElseThrow(() -> new ApplicationException("Unable to find point to start area calculation"));
-        pointsToCheck.add(startPoint);
-
-        while (!pointsToCheck.isEmpty()) {
-
-            Point point = pointsToCheck.get(0);
-            pointsToCheck.remove(0);
-            matrix.get(point.getX()).remove(point.getY());
-
-            area.add(point);
-            Stream.of(
-                    new Point(point.getX() + 1, point.getY()),
-                    new Point(point.getX(), point.getY() + 1),
-                    new Point(point.getX() - 1, point.getY()),
-                    new Point(point.getX(), point.getY() - 1)
-            )
-                    .filter(p -> matrix.containsKey(p.getX()) && matrix.get(p.getX()).contains(p.getY()))
-                    .filter(p -> !perimeterSet.contains(p))
-                    .peek(p -> matrix.get(p.getX()).remove(p.getY()))
-                    .forEach(pointsToCheck::add);
-        }
-
-        return area;
-    }
+        Mask perimeterMask = new Mask(maxX - minX + 1, maxY - minY + 1);
+        perimeter.forEach(point -> perimeterMask.set(point.getX() - minX, point.getY() - minY));
 
-    private static List<Point> getClockwisePerimeterBetween(List<Point> borderPoints, Point pointA, Point pointB) {
+        PointList area = new PointList();
+        double[] crossings = new double[contour.size()];
 
-        List<Point> perimeter = new ArrayList<>();
+        for (int y = minY; y <= maxY; y++) {
 
-        int i = 0;
-        while (!borderPoints.get(i).equals(pointA)) {
-            i++;
-        }
-        while (!borderPoints.get(i).equals(pointB)) {
+            int crossingsCount = 0;
+            for (int i = 0; i < contour.size(); i++) {
 
-            i = (i + 1) % borderPoints.size();
-            perimeter.add(borderPoints.get(i));
+                Point a = contour.get(i);
+                Point b = contour.get((i + 1) % contour.size());
+                //Half-open rows so a vertex shared by two edges is crossed once
+                if ((a.getY() <= y) != (b.getY() <= y)) {
+                    crossings[crossingsCount++] = a.getX() + (double) (y - a.getY()) * (b.getX() - a.getX()) / (b.getY() - a.getY());
+                }
+            }
+            Arrays.sort(crossings, 0, crossingsCount);
+
+            for (int i = 0; i + 1 < crossingsCount; i += 2) {
+                for (int x = (int) Math.ceil(crossings[i]); x <= (int) Math.floor(crossings[i + 1]); x++) {
+                    if (!perimeterMask.get(x - minX, y - minY) && grid.isOccupied(x, y) == pieceSide) {
+                        area.add(x, y);
+                    }
+                }
+            }
         }
-        perimeter.add(pointB);
 
-        return perimeter;
+        return area;
     }
 
-    private static List<ConvexityDefect> sortClockwise(List<ConvexityDefect> convexityDefects, List<Point> borderPoints) {
-
-        Map<Point, ConvexityDefect> elementsToPlace = convexityDefects.stream()
-                .collect(Collectors.toMap(ConvexityDefect::getHullPointA, e -> e));
-        List<ConvexityDefect> sortedList = new ArrayList<>();
-
-        borderPoints.forEach(point -> {
-
-            if (elementsToPlace.containsKey(point)) {
-
-                sortedList.add(elementsToPlace.get(point));
-                elementsToPlace.remove(point);
-            }
-        });
-
-        return sortedList;
+    private static List<Point> getClockwisePerimeterBetween(Contour border, int indexA, int indexB) {
+        //Border points after A up to B included
+        return indexA == indexB ? border.range(indexB, indexB + 1) : border.range(indexA + 1, indexB + 1);
     }
 
     private static List<ConvexityDefect> discardConvexityImperfections(List<ConvexityDefect> convexityDefects) {
@@ -355,100 +450,17 @@ public class RawPieceFactory {
          */
     }
 
-    private static List<ConvexityDefect> detectConvexityDefects(List<Point> borderPoints, List<Point> convexHull) {
-        //border points and convexHull are both sorted clockwise around the piece
-
-        List<ConvexityDefect> partialDefects = IntStream.range(0, convexHull.size() - 1)
-                .mapToObj(i -> ConvexityDefect.factory(convexHull.get(i), convexHull.get(i + 1)))
-                .collect(Collectors.toList());
-        int index = IntStream.range(0, borderPoints.size())
-                .filter(i -> borderPoints.get(i).equals(partialDefects.get(0).getHullPointA()))
-                .findFirst()
-                .orElseThrow(() -> new ApplicationException("Unable to find starting point of borders"));
-        index = (index + 1) % borderPoints.size();
-
-        Map<ConvexityDefect, List<Point>> map = new HashMap<>();
-
-        while (!partialDefects.isEmpty()) {
-
-            index = (index + 1) % borderPoints.size();
-            List<Point> containedPoints = new ArrayList<>();
-
-            while (!borderPoints.get(index).equals(partialDefects.get(0).getHullPointB())) {
-
-                containedPoints.add(borderPoints.get(index));
-                index = (index + 1) % borderPoints.size();
-            }
-
-            map.put(partialDefects.get(0), containedPoints);
-            partialDefects.remove(0);
-        }
-
-        return map.entrySet().parallelStream()
-                .map(entry -> ConvexityDefect.factory(
-                        entry.getKey().getHullPointA(),
-                        entry.getKey().getHullPointB(),
-                        entry.getValue()))
-                .collect(Collectors.toList());
-    }
-
-    private static List<Point> sortBorders(List<Point> borderPoints) {
-
-        Stack<Point> result = new Stack<>();
-        Map<Integer, List<Integer>> matrix = new HashMap<>();
-        int points = borderPoints.size();
-        borderPoints.forEach(point -> {
-
-            if (!matrix.containsKey(point.getX())) {
-                matrix.put(point.getX(), new ArrayList<>());
-            }
-            matrix.get(point.getX()).add(point.getY());
-        });
-
-        Optional<Point> point = Optional.of(borderPoints.get(0));
-
-        while (points > 0) {
-
-            if (point.isPresent()) {
-
-                matrix.get(point.get().getX()).remove(point.get().getY());
-                result.push(point.get());
-                points--;
-
-                point = detectNextPoint(matrix, point.get());
-            } else {
-
-                result.pop();
-                point = Optional.of(result.pop());
-            }
-        }
-
-        return result;
-    }
-
-    private static Optional<Point> detectNextPoint(Map<Integer, List<Integer>> matrix, Point point) {
-
-        return Stream.of(
-                new Point(point.getX(), point.getY() - 1),
-                new Point(point.getX() - 1, point.getY() - 1),
-                new Point(point.getX() - 1, point.getY()),
-                new Point(point.getX() - 1, point.getY() + 1),
-                new Point(point.getX(), point.getY() + 1),
-                new Point(point.getX() + 1, point.getY() + 1),
-                new Point(point.getX() + 1, point.getY()),
-                new Point(point.getX() + 1, point.getY() - 1)
-        )
-                .filter(p -> matrix.containsKey(p.getX()) && matrix.get(p.getX()).contains(p.getY()))
-                .findFirst();
-    }
+    static List<ConvexityDefect> detectConvexityDefects(Contour border, int[] hullIndexes) {
+        //Hull indexes follow the border clockwise, each defect holds the border points between two consecutive hull vertices
 
-    private static List<Point> detectBorderPoints(List<Point> points) {
+        return IntStream.range(0, hullIndexes.length).parallel()
+                .mapToObj(i -> {
 
-        PointsGroup group = new PointsGroup();
-        points.forEach(group::addPoint);
+                    int from = hullIndexes[i];
+                    int to = hullIndexes[(i + 1) % hullIndexes.length];
 
-        return points.stream()
-                .filter(point -> group.findClosePoints(point).size() < 4)
+                    return ConvexityDefect.factory(border.get(from), border.get(to), border.range(from + 1, to));
+                })
                 .collect(Collectors.toList());
     }
 }
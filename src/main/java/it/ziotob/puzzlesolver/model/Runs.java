@@ -0,0 +1,133 @@
+package it.ziotob.puzzlesolver.model;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class Runs {
+    //Horizontal runs of set pixels in row-major order, a run covers [start, end) on its row
+
+    @Getter
+    private int size;
+    private int[] rows;
+    private int[] starts;
+    private int[] ends;
+
+    public Runs(int capacity) {
+
+        rows = new int[Math.max(1, capacity)];
+        starts = new int[rows.length];
+        ends = new int[rows.length];
+    }
+
+    public static Runs extract(Mask mask, int fromRow, int toRow) {
+
+        Runs runs = new Runs(toRow - fromRow);
+
+        for (int y = fromRow; y < toRow; y++) {
+
+            int x = mask.nextSetBit(0, y);
+            while (x >= 0) {
+
+                int end = mask.nextClearBit(x, y);
+                runs.add(y, x, end);
+                x = mask.nextSetBit(end, y);
+            }
+        }
+
+        return runs;
+    }
+
+    public static Runs concat(List<Runs> parts) {
+
+        Runs runs = new Runs(parts.stream().mapToInt(Runs::getSize).sum());
+
+        for (Runs part : parts) {
+
+            System.arraycopy(part.rows, 0, runs.rows, runs.size, part.size);
+            System.arraycopy(part.starts, 0, runs.starts, runs.size, part.size);
+            System.arraycopy(part.ends, 0, runs.ends, runs.size, part.size);
+            runs.size += part.size;
+        }
+
+        return runs;
+    }
+
+    public void add(int row, int start, int end) {
+
+        if (size == rows.length) {
+
+            rows = Arrays.copyOf(rows, size * 2);
+            starts = Arrays.copyOf(starts, size * 2);
+            ends = Arrays.copyOf(ends, size * 2);
+        }
+
+        rows[size] = row;
+        starts[size] = start;
+        ends[size] = end;
+        size++;
+    }
+
+    public void append(Runs other) {
+
+        for (int i = 0; i < other.size; i++) {
+            add(other.rows[i], other.starts[i], other.ends[i]);
+        }
+    }
+
+    public void sort() {
+        //Restores row-major order after runs of different components have been appended together
+
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = (long) rows[i] << 42 | (long) starts[i] << 21 | (ends[i] - starts[i]);
+        }
+        Arrays.sort(keys);
+
+        for (int i = 0; i < size; i++) {
+
+            rows[i] = (int) (keys[i] >>> 42);
+            starts[i] = (int) (keys[i] >>> 21) & 0x1FFFFF;
+            ends[i] = starts[i] + ((int) keys[i] & 0x1FFFFF);
+        }
+    }
+
+    public int getPixelCount() {
+
+        int pixelCount = 0;
+        for (int i = 0; i < size; i++) {
+            pixelCount += ends[i] - starts[i];
+        }
+
+        return pixelCount;
+    }
+
+    public PointList toPointList() {
+
+        PointList points = new PointList(getPixelCount());
+        for (int i = 0; i < size; i++) {
+            for (int x = starts[i]; x < ends[i]; x++) {
+                points.add(x, rows[i]);
+            }
+        }
+
+        return points;
+    }
+
+    public int getRow(int index) {
+        return rows[index];
+    }
+
+    public int getStart(int index) {
+        return starts[index];
+    }
+
+    public int getEnd(int index) {
+        return ends[index];
+    }
+
+    public boolean overlaps(int indexA, int indexB) {
+        return starts[indexA] < ends[indexB] && starts[indexB] < ends[indexA];
+    }
+}
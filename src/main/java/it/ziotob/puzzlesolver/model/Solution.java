@@ -0,0 +1,24 @@
+package it.ziotob.puzzlesolver.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+@Getter
+@ToString(exclude = "placements")
+public class Solution {
+
+    private final int rows;
+    private final int columns;
+    private final List<Placement> placements;
+    private final double cost;
+    private final long exploredStates;
+    private final long solveMillis;
+
+    public Placement getPlacement(int row, int column) {
+        return placements.get(row * columns + column);
+    }
+}
@@ -0,0 +1,23 @@
+package it.ziotob.puzzlesolver.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+@Getter
+@ToString
+public class SyntheticPiece {
+    //Ground truth of a generated piece: its cell in the solved puzzle and where it was drawn. Corners are clockwise
+    //from the top left one of the unrotated piece, the rotation angle is in degrees counter-clockwise as for RawPiece
+
+    private final int row;
+    private final int column;
+    private final Point center;
+    private final List<Point> corners;
+    private final int outerLocks;
+    private final int innerLocks;
+    private final double rotationAngle;
+}
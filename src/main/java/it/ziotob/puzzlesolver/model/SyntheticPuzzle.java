@@ -0,0 +1,17 @@
+package it.ziotob.puzzlesolver.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+@RequiredArgsConstructor
+@Getter
+public class SyntheticPuzzle {
+
+    private final BufferedImage image;
+    private final int rows;
+    private final int columns;
+    private final List<SyntheticPiece> pieces;
+}
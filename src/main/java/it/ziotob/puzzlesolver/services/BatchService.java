@@ -0,0 +1,216 @@
+package it.ziotob.puzzlesolver.services;
+
+import it.ziotob.puzzlesolver.exception.ApplicationException;
+import it.ziotob.puzzlesolver.model.BatchSummary;
+import it.ziotob.puzzlesolver.model.Mask;
+import it.ziotob.puzzlesolver.model.Moments;
+import it.ziotob.puzzlesolver.model.Point;
+import it.ziotob.puzzlesolver.model.PointList;
+import it.ziotob.puzzlesolver.model.RawPiece;
+import it.ziotob.puzzlesolver.model.RawPieceFactory;
+import it.ziotob.puzzlesolver.utils.Metrics;
+import javafx.util.Pair;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+@RequiredArgsConstructor
+public class BatchService {
+    //Photos flow through decode, segmentation, analysis and write stages, each one with its own threads and a bounded
+    //queue. A full queue blocks the stage feeding it, so only a few decoded images are in memory at any time.
+    //With metrics enabled, their summary is written next to the results as <output>.metrics.json
+
+    public static final int DEFAULT_IMAGE_QUEUE_CAPACITY = 2;
+    private static final int PIECE_QUEUE_CAPACITY = 256;
+    private static final String HEADER = "photo,piece,pixels,center_x,center_y,outer_locks,inner_locks,corners,rotation";
+    private static final String[] EXTENSIONS = {".jpg", ".jpeg", ".png", ".bmp", ".gif"};
+
+    private final ImageService imageService;
+    private final RawPieceService rawPieceService;
+    @Setter
+    private int decodeThreads = 2;
+    @Setter
+    private int segmentationThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    @Setter
+    private int analysisThreads = Runtime.getRuntime().availableProcessors();
+    @Setter
+    private int imageQueueCapacity = DEFAULT_IMAGE_QUEUE_CAPACITY;
+
+    public BatchSummary run(Path inputDirectory, Path output) {
+
+        long start = System.nanoTime();
+        List<Path> photos = photos(inputDirectory);
+        AtomicInteger failedPhotos = new AtomicInteger();
+        AtomicInteger pieces = new AtomicInteger();
+        AtomicInteger failedPieces = new AtomicInteger();
+        Queue<String> failures = new ConcurrentLinkedQueue<>();
+        AtomicReference<IOException> writeError = new AtomicReference<>();
+
+        ExecutorService decode = stage(decodeThreads, imageQueueCapacity);
+        ExecutorService segmentation = stage(segmentationThreads, imageQueueCapacity);
+        ExecutorService analysis = stage(analysisThreads, PIECE_QUEUE_CAPACITY);
+        ExecutorService write = stage(1, PIECE_QUEUE_CAPACITY);
+
+        try (BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+
+            writer.write(HEADER);
+            writer.newLine();
+            photos.forEach(photo -> decode.execute(() -> {
+
+                BufferedImage image;
+                try {
+                    image = imageService.loadImage(photo.toString());
+                } catch (RuntimeException e) {
+                    fail(photo.getFileName().toString(), e, failedPhotos, failures);
+                    return;
+                }
+
+                segmentation.execute(() -> {
+
+                    List<Pair<PointList, Moments>> piecesPoints;
+                    try {
+                        Mask piecesMask = imageService.applyMask(image, imageService.detectBackgroundMask(image));
+                        piecesPoints = rawPieceService.detectPiecesPoints(piecesMask);
+                    } catch (RuntimeException e) {
+                        fail(photo.getFileName().toString(), e, failedPhotos, failures);
+                        return;
+                    }
+
+                    //Pieces are numbered in segmentation order, so numbers do not depend on which analysis ends first
+                    IntStream.range(0, piecesPoints.size()).forEach(index -> analysis.execute(() -> {
+
+                        int pieceNumber = index + 1;
+                        try {
+                            Pair<PointList, Moments> piecePoints = piecesPoints.get(index);
+                            RawPiece piece = RawPieceFactory.factory(piecePoints.getKey(), piecePoints.getValue());
+                            String line = line(photo, pieceNumber, piece);
+                            pieces.incrementAndGet();
+                            write.execute(() -> writeLine(writer, line, writeError));
+                        } catch (RuntimeException e) {
+                            fail(photo.getFileName() + " piece " + pieceNumber, e, failedPieces, failures);
+                        }
+                    }));
+                });
+            }));
+
+            //Each stage only receives work from the previous one, so stages can be drained in order
+            awaitTermination(decode);
+            awaitTermination(segmentation);
+            awaitTermination(analysis);
+            awaitTermination(write);
+
+            if (writeError.get() != null) {
+                throw writeError.get();
+            }
+        } catch (IOException e) {
+            throw new ApplicationException("Error while writing batch results", e);
+        } finally {
+            Stream.of(decode, segmentation, analysis, write).forEach(ExecutorService::shutdownNow);
+        }
+
+        if (Metrics.isEnabled()) {
+            writeMetrics(output.resolveSibling(output.getFileName() + ".metrics.json"));
+        }
+
+        return new BatchSummary(photos.size(), failedPhotos.get(), pieces.get(), failedPieces.get(),
+                failures.stream().sorted().collect(Collectors.toList()), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static void writeMetrics(Path metricsFile) {
+
+        try {
+            Files.write(metricsFile, Metrics.summary().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new ApplicationException("Error while writing batch metrics", e);
+        }
+    }
+
+    private static List<Path> photos(Path inputDirectory) {
+
+        try (Stream<Path> files = Files.list(inputDirectory)) {
+
+            return files
+                    .filter(Files::isRegularFile)
+                    .filter(file -> Stream.of(EXTENSIONS).anyMatch(file.getFileName().toString().toLowerCase(Locale.ROOT)::endsWith))
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new ApplicationException("Error while listing photos", e);
+        }
+    }
+
+    private static ExecutorService stage(int threads, int queueCapacity) {
+        //Fixed threads over a bounded queue, a submitter finding the queue full waits for room instead of being rejected
+
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                (task, executor) -> {
+
+                    try {
+                        executor.getQueue().put(task);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException("Interrupted while waiting for the next stage", e);
+                    }
+                });
+    }
+
+    private static void awaitTermination(ExecutorService stage) {
+
+        stage.shutdown();
+        try {
+            stage.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApplicationException("Interrupted while waiting for the batch", e);
+        }
+    }
+
+    private static String line(Path photo, int pieceNumber, RawPiece piece) {
+
+        Point center = piece.getCenter();
+
+        return String.join(",", photo.getFileName().toString(), String.valueOf(pieceNumber), String.valueOf(piece.getPointList().size()),
+                String.valueOf(center.getX()), String.valueOf(center.getY()), String.valueOf(piece.getOuterLocks().size()),
+                String.valueOf(piece.getInnerLocks().size()), String.valueOf(piece.getCorners().size()),
+                String.format(Locale.ROOT, "%.2f", piece.getRotationAngle()));
+    }
+
+    private static void writeLine(BufferedWriter writer, String line, AtomicReference<IOException> writeError) {
+        //Flushed line by line, so results can be followed while the batch runs. The first error is kept for the caller
+
+        try {
+            writer.write(line);
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            writeError.compareAndSet(null, e);
+        }
+    }
+
+    private static void fail(String item, RuntimeException e, AtomicInteger failed, Queue<String> failures) {
+        //Skipped items are reported by the summary, the batch goes on with the others
+
+        failed.incrementAndGet();
+        failures.add(item + ": " + e.getMessage());
+    }
+}
@@ -1,17 +1,36 @@
 package it.ziotob.puzzlesolver.services;
 
 import it.ziotob.puzzlesolver.exception.ApplicationException;
+import it.ziotob.puzzlesolver.model.HueHistogram;
+import it.ziotob.puzzlesolver.model.Mask;
 import it.ziotob.puzzlesolver.model.Point;
 import it.ziotob.puzzlesolver.model.PointsColorGroup;
+import it.ziotob.puzzlesolver.utils.MappedDataBuffer;
+import it.ziotob.puzzlesolver.utils.Metrics;
+import it.ziotob.puzzlesolver.utils.RollingDataBuffer;
 import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.Setter;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.event.IIOReadUpdateListener;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageInputStream;
 import java.awt.*;
-import java.awt.image.BufferedImage;
+import java.awt.image.*;
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.function.BiConsumer;
+import java.util.function.IntUnaryOperator;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -20,20 +39,40 @@ import java.util.stream.Stream;
 public class ImageService {
 
     public static final int DEFAULT_HSV_TOLERANCE = 20;
+    private static final int BAND_HEIGHT = 64;
+    private static final String JPEG_METADATA_FORMAT = "javax_imageio_jpeg_image_1.0";
+    private static final String PNG_METADATA_FORMAT = "javax_imageio_png_1.0";
+    @Getter
     @Setter
     private int hsvTolerance;
 
     public BufferedImage loadImage(String imagePath) {
 
+        Metrics.Timer timer = Metrics.start(Metrics.Stage.DECODE);
+        BufferedImage image;
         try {
-            return ImageIO.read(new File(imagePath));
+            image = ImageIO.read(new File(imagePath));
         } catch (IOException e) {
             throw new ApplicationException("Error while loading image", e);
         }
+
+        if (image == null) {
+            throw new ApplicationException("No image reader available for " + imagePath);
+        }
+        timer.stop((long) image.getWidth() * image.getHeight());
+
+        return image;
+    }
+
+    public BufferedImage loadImage(String imagePath, RasterCache rasterCache) {
+
+        return rasterCache.load(imagePath)
+                .orElseGet(() -> rasterCache.store(imagePath, loadImage(imagePath)));
     }
 
     public List<Point> detectBackground(BufferedImage image) {
 
+        Metrics.Timer timer = Metrics.start(Metrics.Stage.BACKGROUND);
         PointsColorGroup group = new PointsColorGroup(hsvTolerance);
         pointsStream(image).forEach(point -> {
 
@@ -42,7 +81,350 @@ public class ImageService {
             group.addPoint(point, (int) (hue * 100));
         });
 
-        return group.getBiggestGroup().collect(Collectors.toList());
+        List<Point> background = group.getBiggestGroup().collect(Collectors.toList());
+        timer.stop((long) image.getWidth() * image.getHeight());
+
+        return background;
+    }
+
+    public Mask detectBackgroundMask(BufferedImage image) {
+
+        Metrics.Timer timer = Metrics.start(Metrics.Stage.BACKGROUND);
+        Mask mask = detectBackgroundMask(image, hueHistogram(image).getBiggestGroupBins());
+        timer.stop((long) image.getWidth() * image.getHeight());
+
+        return mask;
+    }
+
+    public HueHistogram hueHistogram(BufferedImage image) {
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int bands = (height + BAND_HEIGHT - 1) / BAND_HEIGHT;
+
+        return IntStream.range(0, bands).parallel()
+                .mapToObj(band -> {
+
+                    HueHistogram bandHistogram = new HueHistogram(hsvTolerance);
+                    int[] row = new int[width];
+
+                    for (int y = band * BAND_HEIGHT; y < Math.min(height, (band + 1) * BAND_HEIGHT); y++) {
+
+                        readRow(image, y, row);
+                        for (int x = 0; x < width; x++) {
+                            bandHistogram.addHue(hue(row[x]));
+                        }
+                    }
+
+                    return bandHistogram;
+                })
+                .reduce(new HueHistogram(hsvTolerance), HueHistogram::merge);
+    }
+
+    public Mask detectBackgroundMask(BufferedImage image, boolean[] backgroundHues) {
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int bands = (height + BAND_HEIGHT - 1) / BAND_HEIGHT;
+
+        Mask mask = new Mask(width, height);
+        IntStream.range(0, bands).parallel().forEach(band -> {
+
+            int[] row = new int[width];
+
+            for (int y = band * BAND_HEIGHT; y < Math.min(height, (band + 1) * BAND_HEIGHT); y++) {
+
+                readRow(image, y, row);
+                for (int x = 0; x < width; x++) {
+                    if (backgroundHues[hue(row[x])]) {
+                        mask.set(x, y);
+                    }
+                }
+            }
+        });
+
+        return mask;
+    }
+
+    public Dimension readSize(String imagePath) {
+        //From the header, without decoding the pixels
+
+        try (ImageInputStream input = ImageIO.createImageInputStream(new File(imagePath))) {
+
+            ImageReader reader = reader(imagePath, input);
+            try {
+
+                reader.setInput(input, true, true);
+                return new Dimension(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            throw new ApplicationException("Error while reading image size", e);
+        }
+    }
+
+    public void readStrips(String imagePath, int stripHeight, BiConsumer<BufferedImage, Integer> consumer) {
+        //Hands the image to the consumer one strip of rows at a time, the strip is only valid during the call. Images
+        //stored top to bottom in a single pass are decoded once, the others by source region, which decoders of
+        //sequential formats serve by decoding again from the top
+
+        try (ImageInputStream input = ImageIO.createImageInputStream(new File(imagePath))) {
+
+            ImageReader reader = reader(imagePath, input);
+            try {
+
+                reader.setInput(input, false, false);
+                SampleModel sampleModel = reader.getImageTypes(0).next().getSampleModel(reader.getWidth(0), reader.getHeight(0));
+
+                if (isSinglePass(reader) && rowElements(sampleModel) > 0) {
+                    readSequentialStrips(reader, stripHeight, consumer);
+                } else {
+                    readRegionStrips(reader, stripHeight, consumer);
+                }
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            throw new ApplicationException("Error while streaming image", e);
+        }
+    }
+
+    private ImageReader reader(String imagePath, ImageInputStream input) {
+
+        Iterator<ImageReader> readers = input == null ? Collections.emptyIterator() : ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            throw new ApplicationException("No image reader available for " + imagePath);
+        }
+
+        return readers.next();
+    }
+
+    private boolean isSinglePass(ImageReader reader) throws IOException {
+        //Progressive JPEGs and interlaced PNGs revisit rows in later passes
+
+        IIOMetadata metadata = reader.getImageMetadata(0);
+        String format = reader.getFormatName().toLowerCase(Locale.ROOT);
+
+        if (format.equals("jpeg") && metadata != null) {
+
+            Node sof = findNode(metadata.getAsTree(JPEG_METADATA_FORMAT), "sof");
+            return sof != null && !"2".equals(((Element) sof).getAttribute("process"));
+        } else if (format.equals("png") && metadata != null) {
+
+            Node header = findNode(metadata.getAsTree(PNG_METADATA_FORMAT), "IHDR");
+            return header != null && "none".equals(((Element) header).getAttribute("interlaceMethod"));
+        }
+
+        return false;
+    }
+
+    private int rowElements(SampleModel sampleModel) {
+        //Data elements of a row, when rows are contiguous in a single bank, otherwise -1
+
+        if (sampleModel instanceof PixelInterleavedSampleModel) {
+            return ((PixelInterleavedSampleModel) sampleModel).getScanlineStride();
+        } else if (sampleModel instanceof SinglePixelPackedSampleModel) {
+            return ((SinglePixelPackedSampleModel) sampleModel).getScanlineStride();
+        } else if (sampleModel instanceof MultiPixelPackedSampleModel) {
+            return ((MultiPixelPackedSampleModel) sampleModel).getScanlineStride();
+        }
+
+        return -1;
+    }
+
+    private Node findNode(Node node, String name) {
+
+        if (name.equals(node.getNodeName())) {
+            return node;
+        }
+
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+
+            Node found = findNode(child, name);
+            if (found != null) {
+                return found;
+            }
+        }
+
+        return null;
+    }
+
+    private void readSequentialStrips(ImageReader reader, int stripHeight, BiConsumer<BufferedImage, Integer> consumer)
+            throws IOException {
+        //The reader writes into a full size image whose buffer only keeps stripHeight rows. Rows arrive in order, so a
+        //strip is handed out as soon as its last row is decoded, before the next row overwrites its first one
+
+        int width = reader.getWidth(0);
+        int height = reader.getHeight(0);
+        ImageTypeSpecifier type = reader.getImageTypes(0).next();
+        SampleModel sampleModel = type.getSampleModel(width, height);
+        int rowElements = rowElements(sampleModel);
+        RollingDataBuffer buffer = new RollingDataBuffer(sampleModel.getDataType(), rowElements * height,
+                rowElements * Math.min(stripHeight, height));
+        ColorModel colorModel = type.getColorModel();
+        WritableRaster raster = Raster.createWritableRaster(sampleModel, buffer, null);
+        BufferedImage image = new BufferedImage(colorModel, raster, colorModel.isAlphaPremultiplied(), null);
+        int[] nextStrip = {0};
+
+        reader.addIIOReadUpdateListener(new IIOReadUpdateListener() {
+
+            @Override
+            public void imageUpdate(ImageReader source, BufferedImage theImage, int minX, int minY, int width,
+                                    int height, int periodX, int periodY, int[] bands) {
+
+                while (minY + height >= Math.min(nextStrip[0] + stripHeight, image.getHeight()) && nextStrip[0] < image.getHeight()) {
+                    nextStrip[0] = acceptStrip(image, nextStrip[0], stripHeight, consumer);
+                }
+            }
+
+            @Override
+            public void passStarted(ImageReader source, BufferedImage theImage, int pass, int minPass, int maxPass,
+                                    int minX, int minY, int periodX, int periodY, int[] bands) {
+            }
+
+            @Override
+            public void passComplete(ImageReader source, BufferedImage theImage) {
+            }
+
+            @Override
+            public void thumbnailPassStarted(ImageReader source, BufferedImage theThumbnail, int pass, int minPass,
+                                             int maxPass, int minX, int minY, int periodX, int periodY, int[] bands) {
+            }
+
+            @Override
+            public void thumbnailUpdate(ImageReader source, BufferedImage theThumbnail, int minX, int minY, int width,
+                                        int height, int periodX, int periodY, int[] bands) {
+            }
+
+            @Override
+            public void thumbnailPassComplete(ImageReader source, BufferedImage theThumbnail) {
+            }
+        });
+
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setDestination(image);
+        reader.read(0, param);
+
+        while (nextStrip[0] < height) {
+            nextStrip[0] = acceptStrip(image, nextStrip[0], stripHeight, consumer);
+        }
+    }
+
+    private int acceptStrip(BufferedImage image, int y, int stripHeight, BiConsumer<BufferedImage, Integer> consumer) {
+
+        int rows = Math.min(stripHeight, image.getHeight() - y);
+        consumer.accept(image.getSubimage(0, y, image.getWidth(), rows), y);
+
+        return y + rows;
+    }
+
+    private void readRegionStrips(ImageReader reader, int stripHeight, BiConsumer<BufferedImage, Integer> consumer)
+            throws IOException {
+
+        int width = reader.getWidth(0);
+        int height = reader.getHeight(0);
+        ImageReadParam param = reader.getDefaultReadParam();
+        BufferedImage strip = reader.getImageTypes(0).next().createBufferedImage(width, Math.min(stripHeight, height));
+        param.setDestination(strip);
+
+        for (int y = 0; y < height; y += stripHeight) {
+
+            int rows = Math.min(stripHeight, height - y);
+            param.setSourceRegion(new Rectangle(0, y, width, rows));
+            reader.read(0, param);
+            consumer.accept(rows == strip.getHeight() ? strip : strip.getSubimage(0, 0, width, rows), y);
+        }
+    }
+
+    private void readRow(BufferedImage image, int y, int[] row) {
+
+        WritableRaster raster = image.getRaster();
+        DataBuffer dataBuffer = raster.getDataBuffer();
+        SampleModel sampleModel = raster.getSampleModel();
+        int width = image.getWidth();
+        int tx = raster.getSampleModelTranslateX();
+        int ty = raster.getSampleModelTranslateY();
+
+        if (dataBuffer instanceof DataBufferByte && sampleModel instanceof PixelInterleavedSampleModel
+                && image.getColorModel() instanceof ComponentColorModel
+                && image.getColorModel().getColorSpace().isCS_sRGB() && sampleModel.getNumBands() >= 3) {
+
+            PixelInterleavedSampleModel interleaved = (PixelInterleavedSampleModel) sampleModel;
+            byte[] data = ((DataBufferByte) dataBuffer).getData();
+            int[] bandOffsets = interleaved.getBandOffsets();
+            int pixelStride = interleaved.getPixelStride();
+            int offset = dataBuffer.getOffset() + (y - ty) * interleaved.getScanlineStride() - tx * pixelStride;
+
+            for (int x = 0; x < width; x++, offset += pixelStride) {
+                row[x] = (data[offset + bandOffsets[0]] & 0xFF) << 16
+                        | (data[offset + bandOffsets[1]] & 0xFF) << 8
+                        | (data[offset + bandOffsets[2]] & 0xFF);
+            }
+        } else if ((dataBuffer instanceof MappedDataBuffer
+                || dataBuffer instanceof RollingDataBuffer && dataBuffer.getDataType() == DataBuffer.TYPE_BYTE)
+                && sampleModel instanceof PixelInterleavedSampleModel
+                && image.getColorModel().getColorSpace().isCS_sRGB() && sampleModel.getNumBands() >= 3) {
+
+            PixelInterleavedSampleModel interleaved = (PixelInterleavedSampleModel) sampleModel;
+            IntUnaryOperator bytes = dataBuffer instanceof MappedDataBuffer ?
+                    ((MappedDataBuffer) dataBuffer)::getByte : ((RollingDataBuffer) dataBuffer)::getByte;
+            int[] bandOffsets = interleaved.getBandOffsets();
+            int pixelStride = interleaved.getPixelStride();
+            int offset = dataBuffer.getOffset() + (y - ty) * interleaved.getScanlineStride() - tx * pixelStride;
+
+            for (int x = 0; x < width; x++, offset += pixelStride) {
+                row[x] = (bytes.applyAsInt(offset + bandOffsets[0]) & 0xFF) << 16
+                        | (bytes.applyAsInt(offset + bandOffsets[1]) & 0xFF) << 8
+                        | (bytes.applyAsInt(offset + bandOffsets[2]) & 0xFF);
+            }
+        } else if (dataBuffer instanceof DataBufferInt && sampleModel instanceof SinglePixelPackedSampleModel
+                && (image.getType() == BufferedImage.TYPE_INT_RGB || image.getType() == BufferedImage.TYPE_INT_ARGB)) {
+
+            SinglePixelPackedSampleModel packed = (SinglePixelPackedSampleModel) sampleModel;
+            int[] data = ((DataBufferInt) dataBuffer).getData();
+            int offset = dataBuffer.getOffset() + packed.getOffset(-tx, y - ty);
+
+            for (int x = 0; x < width; x++) {
+                row[x] = data[offset + x] & 0xFFFFFF;
+            }
+        } else {
+            image.getRGB(0, y, width, 1, row, 0, width);
+        }
+    }
+
+    private int hue(int rgb) {
+        //Inlined Color.RGBtoHSB hue, so that bins are identical to detectBackground without allocating a float[] per pixel
+
+        int r = red(rgb);
+        int g = green(rgb);
+        int b = blue(rgb);
+        int cmax = Math.max(Math.max(r, g), b);
+        int cmin = Math.min(Math.min(r, g), b);
+
+        if (cmax == cmin) {
+            return 0;
+        }
+
+        float redc = ((float) (cmax - r)) / ((float) (cmax - cmin));
+        float greenc = ((float) (cmax - g)) / ((float) (cmax - cmin));
+        float bluec = ((float) (cmax - b)) / ((float) (cmax - cmin));
+        float hue;
+
+        if (r == cmax) {
+            hue = bluec - greenc;
+        } else if (g == cmax) {
+            hue = 2.0f + redc - bluec;
+        } else {
+            hue = 4.0f + greenc - redc;
+        }
+
+        hue = hue / 6.0f;
+        if (hue < 0) {
+            hue = hue + 1.0f;
+        }
+
+        return (int) (hue * 100);
     }
 
     private Stream<Point> pointsStream(BufferedImage image) {
@@ -76,17 +458,34 @@ public class ImageService {
 
     public List<Point> applyMask(BufferedImage image, List<Point> backgroundPoints) {
 
+        Metrics.Timer timer = Metrics.start(Metrics.Stage.MASK);
         boolean[][] points = new boolean[image.getHeight()][image.getWidth()];
 
         for (Point point : backgroundPoints) {
             points[point.getY()][point.getX()] = true;
         }
 
-        return IntStream.range(0, image.getWidth()).parallel()
+        List<Point> piecesPoints = IntStream.range(0, image.getWidth()).parallel()
                 .mapToObj(x -> IntStream.range(0, image.getHeight())
                         .filter(y -> !points[y][x])
                         .mapToObj(y -> new Point(x, y)))
                 .flatMap(s -> s)
                 .collect(Collectors.toList());
+        timer.stop((long) image.getWidth() * image.getHeight());
+
+        return piecesPoints;
+    }
+
+    public Mask applyMask(BufferedImage image, Mask backgroundMask) {
+
+        if (backgroundMask.getWidth() != image.getWidth() || backgroundMask.getHeight() != image.getHeight()) {
+            throw new ApplicationException("Background mask size does not match image size");
+        }
+
+        Metrics.Timer timer = Metrics.start(Metrics.Stage.MASK);
+        Mask piecesMask = backgroundMask.invert();
+        timer.stop((long) image.getWidth() * image.getHeight());
+
+        return piecesMask;
     }
 }
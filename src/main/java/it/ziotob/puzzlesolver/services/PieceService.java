@@ -0,0 +1,26 @@
+package it.ziotob.puzzlesolver.services;
+
+import it.ziotob.puzzlesolver.model.Piece;
+import it.ziotob.puzzlesolver.model.PieceFactory;
+import it.ziotob.puzzlesolver.model.RawPiece;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class PieceService {
+
+    public List<Piece> createPieces(List<RawPiece> rawPieces) {
+
+        return rawPieces.parallelStream()
+                .map(PieceFactory::factory)
+                .collect(Collectors.toList());
+    }
+
+    public List<Piece> createPieces(List<RawPiece> rawPieces, BufferedImage image) {
+
+        return rawPieces.parallelStream()
+                .map(rawPiece -> PieceFactory.factory(rawPiece, image))
+                .collect(Collectors.toList());
+    }
+}
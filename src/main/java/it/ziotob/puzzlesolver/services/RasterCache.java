@@ -0,0 +1,140 @@
+package it.ziotob.puzzlesolver.services;
+
+import it.ziotob.puzzlesolver.exception.ApplicationException;
+import it.ziotob.puzzlesolver.utils.MappedDataBuffer;
+import lombok.RequiredArgsConstructor;
+
+import java.awt.*;
+import java.awt.color.ColorSpace;
+import java.awt.image.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Optional;
+
+@RequiredArgsConstructor
+public class RasterCache {
+    //Decoded images stored as a header followed by raw BGR bytes, keyed by path, size and modification time.
+    //Cached images are memory mapped read only, so a read only cache directory works: pages are loaded on first access
+    //and writing to a cached image throws ReadOnlyBufferException
+
+    private static final int MAGIC = 0x505A5243;
+    private static final int HEADER_SIZE = 16;
+    private static final int BANDS = 3;
+
+    private final Path cacheDirectory;
+
+    public Optional<BufferedImage> load(String imagePath) {
+
+        Path cacheFile = cacheFile(imagePath);
+        if (!Files.isRegularFile(cacheFile)) {
+            return Optional.empty();
+        }
+
+        try (FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.READ)) {
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            header.flip();
+
+            int magic = header.getInt();
+            int width = header.getInt();
+            int height = header.getInt();
+            long size = (long) width * height * BANDS;
+
+            if (magic != MAGIC || channel.size() != HEADER_SIZE + size || size > Integer.MAX_VALUE) {
+                return Optional.empty();
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, size);
+            return Optional.of(wrap(buffer, width, height));
+        } catch (IOException e) {
+            throw new ApplicationException("Error while loading cached raster", e);
+        }
+    }
+
+    public BufferedImage store(String imagePath, BufferedImage image) {
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if ((long) width * height * BANDS > Integer.MAX_VALUE) {
+            throw new ApplicationException("Image too big to be cached: " + imagePath);
+        }
+
+        Path cacheFile = cacheFile(imagePath);
+
+        try {
+
+            Files.createDirectories(cacheDirectory);
+            Path temporaryFile = Files.createTempFile(cacheDirectory, cacheFile.getFileName().toString(), ".tmp");
+
+            try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(width).putInt(height).putInt(0).flip();
+                channel.write(header);
+
+                int[] rgb = new int[width];
+                ByteBuffer row = ByteBuffer.allocate(width * BANDS);
+
+                for (int y = 0; y < height; y++) {
+
+                    image.getRGB(0, y, width, 1, rgb, 0, width);
+                    row.clear();
+                    for (int x = 0; x < width; x++) {
+                        row.put((byte) rgb[x]).put((byte) (rgb[x] >> 8)).put((byte) (rgb[x] >> 16));
+                    }
+                    row.flip();
+                    while (row.hasRemaining()) {
+                        channel.write(row);
+                    }
+                }
+            }
+
+            Files.move(temporaryFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new ApplicationException("Error while caching raster", e);
+        }
+
+        return load(imagePath).orElseThrow(() -> new ApplicationException("Unable to read back cached raster"));
+    }
+
+    private BufferedImage wrap(ByteBuffer buffer, int width, int height) {
+
+        PixelInterleavedSampleModel sampleModel = new PixelInterleavedSampleModel(
+                DataBuffer.TYPE_BYTE, width, height, BANDS, width * BANDS, new int[]{2, 1, 0});
+        WritableRaster raster = Raster.createWritableRaster(sampleModel, new MappedDataBuffer(buffer), null);
+        ColorModel colorModel = new ComponentColorModel(
+                ColorSpace.getInstance(ColorSpace.CS_sRGB), false, false, Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+
+        return new BufferedImage(colorModel, raster, false, null);
+    }
+
+    private Path cacheFile(String imagePath) {
+
+        try {
+
+            Path path = Paths.get(imagePath).toAbsolutePath();
+            String key = path + "|" + Files.size(path) + "|" + Files.getLastModifiedTime(path).toMillis();
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+
+            StringBuilder name = new StringBuilder();
+            for (int i = 0; i < 16; i++) {
+                name.append(String.format("%02x", digest[i]));
+            }
+
+            return cacheDirectory.resolve(name + ".raster");
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new ApplicationException("Unable to compute raster cache key", e);
+        }
+    }
+}
@@ -1,40 +1,74 @@
 package it.ziotob.puzzlesolver.services;
 
+import it.ziotob.puzzlesolver.model.Component;
+import it.ziotob.puzzlesolver.model.ComponentLabeling;
+import it.ziotob.puzzlesolver.model.Mask;
+import it.ziotob.puzzlesolver.model.Moments;
 import it.ziotob.puzzlesolver.model.RawPiece;
 import it.ziotob.puzzlesolver.model.RawPieceFactory;
 import it.ziotob.puzzlesolver.model.Point;
-import it.ziotob.puzzlesolver.model.PointsGroup;
+import it.ziotob.puzzlesolver.model.PointList;
+import it.ziotob.puzzlesolver.utils.ComponentLabeler;
+import it.ziotob.puzzlesolver.utils.Metrics;
+import javafx.util.Pair;
+import lombok.Setter;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 public class RawPieceService {
 
+    public enum LabelingMode {
+        SEQUENTIAL, PARALLEL
+    }
+
+    private static final int TILES_PER_THREAD = 4;
+    @Setter
+    private LabelingMode labelingMode = LabelingMode.SEQUENTIAL;
+
     public List<RawPiece> detectPieces(List<Point> piecesPoints) {
 
-        PointsGroup pointsGroup = new PointsGroup();
-        piecesPoints.forEach(pointsGroup::addPoint);
+        int width = piecesPoints.stream().mapToInt(Point::getX).max().orElse(-1) + 1;
+        int height = piecesPoints.stream().mapToInt(Point::getY).max().orElse(-1) + 1;
 
-        List<List<Point>> result = new ArrayList<>();
-        Optional<List<Point>> piece = detectPiece(pointsGroup);
+        return detectPieces(Mask.fromPoints(piecesPoints, width, height));
+    }
 
-        while (piece.isPresent()) {
+    public List<RawPiece> detectPieces(Mask piecesMask) {
 
-            result.add(piece.get());
-            piece = detectPiece(pointsGroup);
-        }
+        return detectPiecesPoints(piecesMask).parallelStream()
+                .map(piece -> RawPieceFactory.factory(piece.getKey(), piece.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    public List<Pair<PointList, Moments>> detectPiecesPoints(Mask piecesMask) {
+        //Labeling only, so that analysing the pieces can be scheduled separately
+
+        Metrics.Timer timer = Metrics.start(Metrics.Stage.LABELING);
+        ComponentLabeling labeling = labelingMode == LabelingMode.PARALLEL ?
+                ComponentLabeler.label(piecesMask, ForkJoinPool.commonPool().getParallelism() * TILES_PER_THREAD) :
+                ComponentLabeler.label(piecesMask);
+        List<PointList> result = labeling.toPointLists();
+        List<Component> components = labeling.getComponents();
+        int minimumPieceSize = minimumPieceSize(result);
 
-        return discardImperfections(result).parallelStream()
-                .map(RawPieceFactory::factory)
+        List<Pair<PointList, Moments>> pieces = IntStream.range(0, result.size())
+                .filter(i -> result.get(i).size() >= minimumPieceSize)
+                .mapToObj(i -> new Pair<>(result.get(i), components.get(i).getMoments()))
                 .collect(Collectors.toList());
+        timer.stop(pieces.size());
+
+        return pieces;
     }
 
-    private List<List<Point>> discardImperfections(List<List<Point>> pieces) {
+    private int minimumPieceSize(List<PointList> pieces) {
+        //Components smaller than the piece right above the biggest gap in the sorted sizes are imperfections, 0 keeps them all
 
-        int biggestPiecePoints = pieces.stream().mapToInt(List::size).max().orElse(0);
+        int biggestPiecePoints = pieces.stream().mapToInt(PointList::size).max().orElse(0);
         List<Integer> distances = pieces.stream()
-                .mapToInt(List::size)
+                .mapToInt(PointList::size)
                 .boxed()
                 .map(size -> biggestPiecePoints - size)
                 .collect(Collectors.toList());
@@ -50,47 +84,18 @@ public class RawPieceService {
                 }).getKey();
 
         if (biggestDistance < biggestPiecePoints / 2) {
-            return pieces;
+            return 0;
         } else {
 
-            List<List<Point>> sortedPieces = pieces.stream()
+            List<PointList> sortedPieces = pieces.stream()
                     .sorted(Comparator.comparingInt(l -> l.size() * -1))
                     .collect(Collectors.toList());
-            int minimumPiecesSize = IntStream.range(1, pieces.size())
+
+            return IntStream.range(1, pieces.size())
                     .filter(i -> sortedPieces.get(i - 1).size() - sortedPieces.get(i).size() == biggestDistance)
                     .map(i -> sortedPieces.get(i - 1).size())
                     .findFirst()
                     .orElse(0);
-
-            return pieces.stream()
-                    .filter(piece -> piece.size() >= minimumPiecesSize)
-                    .collect(Collectors.toList());
-        }
-    }
-
-    private Optional<List<Point>> detectPiece(PointsGroup pointsGroup) {
-
-        List<Point> points = new ArrayList<>();
-        List<Point> targetPoints = new ArrayList<>();
-        pointsGroup.getRandomPoint().ifPresent(targetPoints::add);
-
-        while (!targetPoints.isEmpty()) {
-
-            Point current = targetPoints.get(0);
-            targetPoints.remove(0);
-
-            points.add(current);
-            pointsGroup.removePoint(current);
-            targetPoints.remove(current);
-
-            List<Point> closePoints = pointsGroup.findClosePoints(current);
-            targetPoints.addAll(closePoints);
-        }
-
-        if (points.isEmpty()) {
-            return Optional.empty();
-        } else {
-            return Optional.of(points);
         }
     }
 }
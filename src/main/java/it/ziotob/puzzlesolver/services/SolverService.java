@@ -0,0 +1,425 @@
+package it.ziotob.puzzlesolver.services;
+
+import it.ziotob.puzzlesolver.exception.ApplicationException;
+import it.ziotob.puzzlesolver.model.*;
+import lombok.Setter;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+public class SolverService {
+
+    private static final int DEFAULT_BEAM_WIDTH = 64;
+    //Complementary edges asked to the index for every expansion, the whole set is scanned only if none of them fits
+    private static final int CANDIDATES = 12;
+    private static final int[] ROW_STEP = {-1, 0, 1, 0};
+    private static final int[] COLUMN_STEP = {0, 1, 0, -1};
+
+    @Setter
+    private int beamWidth = DEFAULT_BEAM_WIDTH;
+    @Setter
+    private int parallelism = ForkJoinPool.commonPool().getParallelism();
+    private ForkJoinPool pool;
+
+    public Solution solve(List<Piece> pieces) {
+
+        int[] gridSize = gridSize(pieces);
+
+        return solve(pieces, gridSize[0], gridSize[1]);
+    }
+
+    public Solution solve(List<Piece> pieces, int rows, int columns) {
+        //Both stages share the edge index and the matches found by the frame search
+
+        Catalog catalog = new Catalog(pieces);
+
+        return solve(catalog, solveFrame(catalog, rows, columns));
+    }
+
+    public Frame solveFrame(List<Piece> pieces) {
+
+        int[] gridSize = gridSize(pieces);
+
+        return solveFrame(pieces, gridSize[0], gridSize[1]);
+    }
+
+    public Frame solveFrame(List<Piece> pieces, int rows, int columns) {
+        return solveFrame(new Catalog(pieces), rows, columns);
+    }
+
+    public Solution solve(List<Piece> pieces, Frame frame) {
+        return solve(new Catalog(pieces), frame);
+    }
+
+    private Frame solveFrame(Catalog catalog, int rows, int columns) {
+        //Only corner and border pieces take part, the frame is a closed ring so its last piece must fit the first one.
+        //The ring is filled clockwise by the same beam search as the interior, bounded the same way
+
+        List<Piece> pieces = catalog.pieces;
+
+        if (rows * columns != pieces.size()) {
+            throw new ApplicationException("Unable to place " + pieces.size() + " pieces on a " + rows + "x" + columns + " grid");
+        }
+
+        long start = System.nanoTime();
+        Search search = new Search(catalog, rows, columns);
+        int[] grid = new int[rows * columns];
+        Arrays.fill(grid, -1);
+        State best = search.solve(search.frameCells(), new State(grid, new long[(pieces.size() + 63) / 64], 0));
+
+        if (best == null) {
+            throw new ApplicationException("Unable to close the frame with " + search.framePieces() + " frame pieces");
+        }
+
+        List<Placement> placements = Arrays.stream(search.frameCells())
+                .mapToObj(cell -> placement(best, cell, columns))
+                .collect(Collectors.toList());
+
+        return new Frame(rows, columns, placements, best.cost, search.explored.sum(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private Solution solve(Catalog catalog, Frame frame) {
+        //The interior is filled row by row starting from the placed frame, costs against frame pieces are included
+
+        List<Piece> pieces = catalog.pieces;
+        int rows = frame.getRows();
+        int columns = frame.getColumns();
+
+        if (rows * columns != pieces.size()) {
+            throw new ApplicationException("Frame of " + rows + "x" + columns + " does not match " + pieces.size() + " pieces");
+        }
+
+        long start = System.nanoTime();
+        Search search = new Search(catalog, rows, columns);
+        int[] grid = new int[rows * columns];
+        long[] used = new long[(pieces.size() + 63) / 64];
+        Arrays.fill(grid, -1);
+        frame.getPlacements().forEach(placement -> {
+
+            grid[placement.getRow() * columns + placement.getColumn()] = placement.getPiece() * PieceEdges.EDGES + placement.getRotation();
+            used[placement.getPiece() >> 6] |= 1L << placement.getPiece();
+        });
+        State best = search.solve(search.interiorCells(), new State(grid, used, frame.getCost()));
+
+        if (best == null) {
+            throw new ApplicationException("Unable to find a placement for " + pieces.size() + " pieces");
+        }
+
+        List<Placement> placements = IntStream.range(0, rows * columns)
+                .mapToObj(cell -> placement(best, cell, columns))
+                .collect(Collectors.toList());
+
+        return new Solution(rows, columns, placements, best.cost, frame.getExploredStates() + search.explored.sum(),
+                frame.getSolveMillis() + (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private synchronized ForkJoinPool pool() {
+        //One pool for every search of this service, a replaced pool lets its idle workers time out instead of being shut
+        //down under a search still running on it
+
+        if (pool == null || pool.getParallelism() != parallelism) {
+            pool = new ForkJoinPool(parallelism);
+        }
+
+        return pool;
+    }
+
+    private static Placement placement(State state, int cell, int columns) {
+        return new Placement(state.grid[cell] / PieceEdges.EDGES, cell / columns, cell % columns, state.grid[cell] % PieceEdges.EDGES);
+    }
+
+    private static int[] gridSize(List<Piece> pieces) {
+        //Frame pieces have at least one flat edge and a rows x columns grid has 2 (rows + columns) - 4 of them
+
+        long frame = pieces.stream()
+                .filter(piece -> PieceKind.of(piece.getEdges()) != PieceKind.INTERIOR)
+                .count();
+        double sum = (frame + 4) / 2.0;
+        int rows = (int) Math.round((sum - Math.sqrt(Math.max(0, sum * sum - 4.0 * pieces.size()))) / 2);
+        int columns = rows > 0 ? pieces.size() / rows : 0;
+
+        if (rows < 2 || rows * columns != pieces.size() || 2 * (rows + columns) - 4 != frame) {
+            throw new ApplicationException("Unable to infer the grid size from " + frame + " frame pieces out of " + pieces.size());
+        }
+
+        return new int[]{rows, columns};
+    }
+
+    private static class State {
+        //Cells hold piece * 4 + rotation, -1 while empty
+
+        private final int[] grid;
+        private final long[] used;
+        private final double cost;
+
+        private State(int[] grid, long[] used, double cost) {
+
+            this.grid = grid;
+            this.used = used;
+            this.cost = cost;
+        }
+
+        private boolean isUsed(int piece) {
+            return (used[piece >> 6] & (1L << piece)) != 0;
+        }
+    }
+
+    private static class Move {
+
+        private final State parent;
+        private final int cell;
+        private final int value;
+        private final double cost;
+
+        private Move(State parent, int cell, int value, double cost) {
+
+            this.parent = parent;
+            this.cell = cell;
+            this.value = value;
+            this.cost = cost;
+        }
+
+        private double getCost() {
+            return cost;
+        }
+
+        private State apply() {
+
+            int[] grid = parent.grid.clone();
+            long[] used = parent.used.clone();
+            int piece = value / PieceEdges.EDGES;
+            grid[cell] = value;
+            used[piece >> 6] |= 1L << piece;
+
+            return new State(grid, used, cost);
+        }
+    }
+
+    private static class Catalog {
+        //What only depends on the pieces: the edge index, the pieces of each kind and the best matches asked so far
+
+        private final List<Piece> pieces;
+        private final EdgeIndex index;
+        private final Map<PieceKind, int[]> piecesByKind;
+        private final Map<Integer, List<EdgeMatch>> matches = new ConcurrentHashMap<>();
+
+        private Catalog(List<Piece> pieces) {
+
+            this.pieces = pieces;
+            this.index = new EdgeIndex(pieces);
+            this.piecesByKind = IntStream.range(0, pieces.size()).boxed()
+                    .collect(Collectors.groupingBy(piece -> PieceKind.of(pieces.get(piece).getEdges()),
+                            () -> new EnumMap<>(PieceKind.class),
+                            Collectors.collectingAndThen(Collectors.toList(), list -> list.stream().mapToInt(Integer::intValue).toArray())));
+        }
+
+        private List<EdgeMatch> findMatches(int piece, int edge) {
+            return matches.computeIfAbsent(piece * PieceEdges.EDGES + edge, key -> index.findMatches(piece, edge, CANDIDATES));
+        }
+
+        private int[] piecesOf(PieceKind kind) {
+            return piecesByKind.getOrDefault(kind, new int[0]);
+        }
+    }
+
+    private class Search {
+
+        private final Catalog catalog;
+        private final List<Piece> pieces;
+        private final int rows;
+        private final int columns;
+        private final AtomicReference<State> best = new AtomicReference<>();
+        private final LongAdder explored = new LongAdder();
+
+        private Search(Catalog catalog, int rows, int columns) {
+
+            this.catalog = catalog;
+            this.pieces = catalog.pieces;
+            this.rows = rows;
+            this.columns = columns;
+        }
+
+        private int[] frameCells() {
+            //Clockwise from the top left corner
+
+            Set<Integer> cells = new LinkedHashSet<>();
+            IntStream.range(0, columns).forEach(column -> cells.add(column));
+            IntStream.range(1, rows).forEach(row -> cells.add(row * columns + columns - 1));
+            IntStream.range(0, columns - 1).map(i -> columns - 2 - i).forEach(column -> cells.add((rows - 1) * columns + column));
+            IntStream.range(1, rows - 1).map(i -> rows - 1 - i).forEach(row -> cells.add(row * columns));
+
+            return cells.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        private int[] interiorCells() {
+
+            return IntStream.range(1, rows - 1)
+                    .flatMap(row -> IntStream.range(1, columns - 1).map(column -> row * columns + column))
+                    .toArray();
+        }
+
+        private int framePieces() {
+            return catalog.piecesOf(PieceKind.CORNER).length + catalog.piecesOf(PieceKind.BORDER).length;
+        }
+
+        private State solve(int[] order, State seed) {
+            //A greedy pass gives the first bound, then the beam search only keeps states cheaper than the best solution so far
+
+            if (order.length == 0) {
+                publish(seed);
+            }
+
+            ForkJoinPool pool = pool();
+            run(order, seed, 1, pool);
+            run(order, seed, beamWidth, pool);
+
+            return best.get();
+        }
+
+        private void run(int[] order, State seed, int width, ForkJoinPool pool) {
+
+            List<State> beam = Collections.singletonList(seed);
+
+            for (int step = 0; step < order.length && !beam.isEmpty(); step++) {
+
+                int cell = order[step];
+                boolean last = step == order.length - 1;
+                List<State> current = beam;
+                beam = pool.submit(() -> current.parallelStream()
+                        .flatMap(state -> expand(state, cell, last))
+                        .sorted(Comparator.comparingDouble(Move::getCost))
+                        .limit(width)
+                        .map(Move::apply)
+                        .collect(Collectors.toList())).join();
+            }
+        }
+
+        private double bound() {
+
+            State current = best.get();
+
+            return current == null ? Double.POSITIVE_INFINITY : current.cost;
+        }
+
+        private void publish(State state) {
+            //Compare and set, so a complete state bounds the other workers as soon as it is found
+            best.accumulateAndGet(state, (current, candidate) -> current == null || candidate.cost < current.cost ? candidate : current);
+        }
+
+        private Stream<Move> expand(State state, int cell, boolean last) {
+
+            List<Move> moves = moves(state, cell, candidates(state, cell), last);
+
+            return (moves.isEmpty() ? moves(state, cell, allCandidates(cell), last) : moves).stream();
+        }
+
+        private List<Move> moves(State state, int cell, IntStream candidates, boolean last) {
+            //Moves filling the last cell complete a solution and are published right away
+
+            return candidates
+                    .filter(value -> !state.isUsed(value / PieceEdges.EDGES))
+                    .mapToObj(value -> {
+
+                        explored.increment();
+                        double cost = state.cost + placementCost(state, cell, value);
+                        if (cost >= bound()) {
+                            return null;
+                        }
+
+                        Move move = new Move(state, cell, value, cost);
+                        if (last) {
+                            publish(move.apply());
+                        }
+
+                        return move;
+                    })
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+        }
+
+        private IntStream candidates(State state, int cell) {
+            //Pieces whose edge best complements an already placed neighbour, rotated so that edge faces the neighbour
+
+            for (int side = 0; side < PieceEdges.EDGES; side++) {
+
+                int neighbour = neighbour(cell, side);
+
+                if (neighbour >= 0 && state.grid[neighbour] >= 0) {
+
+                    int neighbourPiece = state.grid[neighbour] / PieceEdges.EDGES;
+                    int neighbourEdge = edge(state.grid[neighbour], opposite(side));
+                    int facingSide = side;
+
+                    return catalog.findMatches(neighbourPiece, neighbourEdge).stream()
+                            .mapToInt(match -> match.getOtherPiece() * PieceEdges.EDGES
+                                    + (facingSide - match.getOtherEdge() + PieceEdges.EDGES) % PieceEdges.EDGES);
+                }
+            }
+
+            return IntStream.empty();
+        }
+
+        private IntStream allCandidates(int cell) {
+            //Every rotation of the pieces of the same kind as the cell
+
+            int borderSides = (int) IntStream.range(0, PieceEdges.EDGES).filter(side -> neighbour(cell, side) < 0).count();
+
+            return Arrays.stream(catalog.piecesOf(PieceKind.of(borderSides)))
+                    .flatMap(piece -> IntStream.range(0, PieceEdges.EDGES).map(rotation -> piece * PieceEdges.EDGES + rotation));
+        }
+
+        private double placementCost(State state, int cell, int value) {
+            //Flat edges must lie exactly on the frame, placed neighbours must fit. Infinite when the placement is not allowed
+
+            int piece = value / PieceEdges.EDGES;
+            PieceEdges edges = pieces.get(piece).getEdges();
+            double cost = 0;
+
+            for (int side = 0; side < PieceEdges.EDGES; side++) {
+
+                int edge = edge(value, side);
+                int neighbour = neighbour(cell, side);
+
+                if ((neighbour < 0) != (edges.getType(edge) == EdgeType.FLAT)) {
+                    return Double.POSITIVE_INFINITY;
+                }
+
+                if (neighbour >= 0 && state.grid[neighbour] >= 0) {
+
+                    int neighbourPiece = state.grid[neighbour] / PieceEdges.EDGES;
+                    int neighbourEdge = edge(state.grid[neighbour], opposite(side));
+
+                    if (!edges.getType(edge).fits(pieces.get(neighbourPiece).getEdges().getType(neighbourEdge))) {
+                        return Double.POSITIVE_INFINITY;
+                    }
+
+                    cost += catalog.index.score(piece, edge, neighbourPiece, neighbourEdge);
+                }
+            }
+
+            return cost;
+        }
+
+        private int neighbour(int cell, int side) {
+
+            int row = cell / columns + ROW_STEP[side];
+            int column = cell % columns + COLUMN_STEP[side];
+
+            return row < 0 || row >= rows || column < 0 || column >= columns ? -1 : row * columns + column;
+        }
+
+        private int edge(int value, int side) {
+            return (side - value % PieceEdges.EDGES + PieceEdges.EDGES) % PieceEdges.EDGES;
+        }
+
+        private int opposite(int side) {
+            return (side + 2) % PieceEdges.EDGES;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package it.ziotob.puzzlesolver.services;
+
+import it.ziotob.puzzlesolver.model.HueHistogram;
+import it.ziotob.puzzlesolver.model.PointList;
+import it.ziotob.puzzlesolver.model.RawPiece;
+import it.ziotob.puzzlesolver.model.RawPieceFactory;
+import it.ziotob.puzzlesolver.utils.StripLabeler;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+@RequiredArgsConstructor
+public class StripSegmentationService {
+    //Segments an image strip by strip while it is decoded, so peak memory depends on the strip height, on the
+    //background sample and on the pieces crossing a strip. The background hues come from the histogram of the first
+    //strips, which are kept until the sample is complete and only then labeled.
+    //Pieces are never all known at once, so small components are dropped by size instead of by discardImperfections.
+    //The minimum size defaults to a fraction of the image pixels, see DEFAULT_MINIMUM_PIECE_FRACTION
+
+    public static final int DEFAULT_STRIP_HEIGHT = 256;
+    public static final long DEFAULT_BACKGROUND_SAMPLE_PIXELS = 1 << 22;
+    public static final double DEFAULT_MINIMUM_PIECE_FRACTION = 0.0001;
+
+    private final ImageService imageService;
+    private final int stripHeight;
+    @Setter
+    private long backgroundSamplePixels = DEFAULT_BACKGROUND_SAMPLE_PIXELS;
+    @Setter
+    private double minimumPieceFraction = DEFAULT_MINIMUM_PIECE_FRACTION;
+    @Setter
+    private Integer minimumPiecePixels;
+
+    public void detectPieces(String imagePath, Consumer<RawPiece> consumer) {
+        detectPiecesPoints(imagePath, points -> consumer.accept(RawPieceFactory.factory(points)));
+    }
+
+    public void detectPiecesPoints(String imagePath, Consumer<PointList> consumer) {
+
+        Dimension size = imageService.readSize(imagePath);
+        int minimumPieceSize = minimumPiecePixels != null ?
+                minimumPiecePixels : (int) (minimumPieceFraction * size.getWidth() * size.getHeight());
+        Segmentation segmentation = new Segmentation(new StripLabeler(points -> {
+
+            if (points.size() >= minimumPieceSize) {
+                consumer.accept(points);
+            }
+        }));
+
+        imageService.readStrips(imagePath, stripHeight, segmentation::addStrip);
+        segmentation.finish();
+    }
+
+    private class Segmentation {
+
+        private final StripLabeler labeler;
+        private final HueHistogram histogram = new HueHistogram(imageService.getHsvTolerance());
+        private final List<BufferedImage> sample = new ArrayList<>();
+        private final List<Integer> sampleRows = new ArrayList<>();
+        private long sampledPixels = 0;
+        private boolean[] backgroundHues;
+
+        private Segmentation(StripLabeler labeler) {
+            this.labeler = labeler;
+        }
+
+        private void addStrip(BufferedImage strip, int y) {
+
+            if (backgroundHues != null) {
+
+                label(strip, y);
+                return;
+            }
+
+            //The strip is only valid during the call
+            WritableRaster copy = strip.getRaster().createCompatibleWritableRaster(strip.getWidth(), strip.getHeight());
+            copy.setDataElements(0, 0, strip.getRaster());
+            histogram.merge(imageService.hueHistogram(strip));
+            sample.add(new BufferedImage(strip.getColorModel(), copy, strip.isAlphaPremultiplied(), null));
+            sampleRows.add(y);
+            sampledPixels += (long) strip.getWidth() * strip.getHeight();
+
+            if (sampledPixels >= backgroundSamplePixels) {
+                labelSample();
+            }
+        }
+
+        private void finish() {
+
+            //Images smaller than the sample are only labeled once read whole
+            if (backgroundHues == null) {
+                labelSample();
+            }
+            labeler.finish();
+        }
+
+        private void labelSample() {
+
+            backgroundHues = histogram.getBiggestGroupBins();
+            for (int i = 0; i < sample.size(); i++) {
+                label(sample.get(i), sampleRows.get(i));
+            }
+            sample.clear();
+            sampleRows.clear();
+        }
+
+        private void label(BufferedImage strip, int y) {
+            labeler.addStrip(imageService.applyMask(strip, imageService.detectBackgroundMask(strip, backgroundHues)), y);
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package it.ziotob.puzzlesolver.tools;
+
+import it.ziotob.puzzlesolver.exception.ApplicationException;
+import it.ziotob.puzzlesolver.model.Point;
+import it.ziotob.puzzlesolver.model.SyntheticPiece;
+import it.ziotob.puzzlesolver.model.SyntheticPuzzle;
+import lombok.Setter;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class PuzzleGenerator {
+    //Deterministic photos of a cut puzzle: square pieces with a circular tab or blank on each shared edge, flat sides on
+    //the border, scattered in a grid over a noisy background and rotated. Mating locks are cut from the same circle, so
+    //the generated pieces also solve back into the puzzle. The same seed and settings always give the same image.
+    //write stores the ground truth next to the image as <image>.truth.csv, with the columns of the batch output
+
+    private static final String USAGE = "Usage: PuzzleGenerator <output png> <rows> <columns> [--width=N] [--height=N]"
+            + " [--seed=N] [--background-hue=F] [--noise=F] [--max-rotation=N] [--no-border]";
+    private static final String HEADER = "piece,row,column,center_x,center_y,outer_locks,inner_locks,corners,rotation,corner_points";
+    private static final int PALETTE_SIZE = 64;
+    //Lock radius and depth and the largest shift of a lock along its edge, as fractions of the piece side
+    private static final double LOCK_RADIUS = 0.15;
+    private static final double LOCK_DEPTH = 0.12;
+    private static final double LOCK_SHIFT = 0.1;
+    //Piece side as a fraction of the layout cell, tabs of a piece rotated by any angle stay inside its cell
+    private static final double PIECE_SIZE = 0.5;
+
+    @Setter
+    private int rows = 1;
+    @Setter
+    private int columns = 1;
+    @Setter
+    private int width = 1600;
+    @Setter
+    private int height = 1200;
+    @Setter
+    private float backgroundHue = 0.33f;
+    @Setter
+    private float noise = 0.1f;
+    //Largest rotation, in degrees, at which piece detection reads back the exact locks, corners and angle
+    @Setter
+    private double maxRotation = 20;
+    @Setter
+    private boolean flatBorder = true;
+
+    public void setPieces(int pieces) {
+        //The most square puzzle with that many pieces
+
+        rows = IntStream.rangeClosed(1, (int) Math.sqrt(pieces))
+                .filter(divisor -> pieces % divisor == 0)
+                .max()
+                .orElse(1);
+        columns = pieces / rows;
+    }
+
+    public void setMegapixels(double megapixels) {
+
+        width = (int) Math.sqrt(megapixels * 1_000_000 * 4 / 3);
+        height = (int) (megapixels * 1_000_000 / width);
+    }
+
+    public SyntheticPuzzle generate(long seed) {
+
+        if (rows < 1 || columns < 1 || width < 1 || height < 1) {
+            throw new ApplicationException("Invalid puzzle size " + rows + "x" + columns + " on " + width + "x" + height);
+        }
+
+        Random random = new Random(seed);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        drawBackground(image, random);
+
+        //Locks of the edges between a piece and the ones on its right and below it
+        double[][][] rightLocks = locks(rows, columns - 1, random);
+        double[][][] bottomLocks = locks(rows - 1, columns, random);
+
+        int pieces = rows * columns;
+        int layoutColumns = (int) Math.ceil(Math.sqrt(pieces * (double) width / height));
+        int layoutRows = (pieces + layoutColumns - 1) / layoutColumns;
+        double cell = Math.min(width / (double) layoutColumns, height / (double) layoutRows);
+        double side = cell * PIECE_SIZE;
+
+        List<Integer> cells = IntStream.range(0, layoutRows * layoutColumns).boxed().collect(Collectors.toList());
+        Collections.shuffle(cells, random);
+
+        Graphics2D graphics = image.createGraphics();
+        List<SyntheticPiece> truth = new ArrayList<>(pieces);
+
+        for (int piece = 0; piece < pieces; piece++) {
+
+            int row = piece / columns;
+            int column = piece % columns;
+            double[][] locks = {
+                    row > 0 ? opposite(bottomLocks[row - 1][column]) : border(random),
+                    column < columns - 1 ? rightLocks[row][column] : border(random),
+                    row < rows - 1 ? bottomLocks[row][column] : border(random),
+                    column > 0 ? opposite(rightLocks[row][column - 1]) : border(random)};
+
+            int layoutCell = cells.get(piece);
+            double angle = (random.nextDouble() * 2 - 1) * maxRotation;
+            AffineTransform transform = new AffineTransform();
+            transform.translate((layoutCell % layoutColumns + 0.5) * cell, (layoutCell / layoutColumns + 0.5) * cell);
+            transform.rotate(Math.toRadians(angle));
+            transform.scale(side, side);
+
+            float hue = (backgroundHue + 0.25f + random.nextFloat() * 0.5f) % 1;
+            graphics.setColor(Color.getHSBColor(hue, 0.5f + random.nextFloat() * 0.4f, 0.5f + random.nextFloat() * 0.4f));
+            graphics.fill(transform.createTransformedShape(shape(locks)));
+
+            List<Point> corners = IntStream.range(0, 4)
+                    .mapToObj(corner -> transform.transform(new Point2D.Double(corner == 1 || corner == 2 ? 0.5 : -0.5,
+                            corner < 2 ? -0.5 : 0.5), null))
+                    .map(point -> new Point((int) Math.round(point.getX()), (int) Math.round(point.getY())))
+                    .collect(Collectors.toList());
+            Point2D center = transform.transform(new Point2D.Double(), null);
+
+            truth.add(new SyntheticPiece(row, column, new Point((int) Math.round(center.getX()), (int) Math.round(center.getY())),
+                    corners, count(locks, 1), count(locks, -1), -angle));
+        }
+        graphics.dispose();
+
+        return new SyntheticPuzzle(image, rows, columns, truth);
+    }
+
+    private void drawBackground(BufferedImage image, Random random) {
+        //Brightness noise only, the background keeps a single hue as on a real mat
+
+        int[] palette = IntStream.range(0, PALETTE_SIZE)
+                .map(i -> Color.HSBtoRGB(backgroundHue, 0.6f, 0.5f + noise * i / PALETTE_SIZE))
+                .toArray();
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = palette[random.nextInt(PALETTE_SIZE)];
+        }
+    }
+
+    private static double[][][] locks(int rows, int columns, Random random) {
+        //Each lock is its direction, 1 for a tab on the first piece, and its shift along the edge
+
+        double[][][] locks = new double[Math.max(rows, 0)][Math.max(columns, 0)][];
+
+        for (double[][] row : locks) {
+            for (int column = 0; column < row.length; column++) {
+                row[column] = new double[]{random.nextBoolean() ? 1 : -1, (random.nextDouble() * 2 - 1) * LOCK_SHIFT};
+            }
+        }
+
+        return locks;
+    }
+
+    private static double[] opposite(double[] lock) {
+        //The mate sees the edge from the other side, tab and blank swap and the shift runs the other way
+        return new double[]{-lock[0], -lock[1]};
+    }
+
+    private double[] border(Random random) {
+        return flatBorder ? new double[]{0, 0} : new double[]{random.nextBoolean() ? 1 : -1, (random.nextDouble() * 2 - 1) * LOCK_SHIFT};
+    }
+
+    private static Shape shape(double[][] locks) {
+        //Unit square centred on the origin, edges clockwise from the top one
+
+        Area shape = new Area(new Rectangle.Double(-0.5, -0.5, 1, 1));
+
+        for (int edge = 0; edge < 4; edge++) {
+
+            double[] lock = locks[edge];
+            if (lock[0] == 0) {
+                continue;
+            }
+
+            //Outward normal and clockwise direction along the edge
+            double normalX = edge == 1 ? 1 : edge == 3 ? -1 : 0;
+            double normalY = edge == 2 ? 1 : edge == 0 ? -1 : 0;
+            double distance = 0.5 + lock[0] * LOCK_DEPTH;
+            double x = normalX * distance - normalY * lock[1];
+            double y = normalY * distance + normalX * lock[1];
+            Area circle = new Area(new Ellipse2D.Double(x - LOCK_RADIUS, y - LOCK_RADIUS, 2 * LOCK_RADIUS, 2 * LOCK_RADIUS));
+
+            if (lock[0] > 0) {
+                shape.add(circle);
+            } else {
+                shape.subtract(circle);
+            }
+        }
+
+        return shape;
+    }
+
+    private static int count(double[][] locks, int direction) {
+        return (int) IntStream.range(0, 4).filter(edge -> locks[edge][0] == direction).count();
+    }
+
+    public static void write(SyntheticPuzzle puzzle, Path imagePath) {
+
+        try {
+            ImageIO.write(puzzle.getImage(), "png", imagePath.toFile());
+
+            try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(imagePath + ".truth.csv"), StandardCharsets.UTF_8)) {
+
+                writer.write(HEADER);
+                writer.newLine();
+
+                for (int i = 0; i < puzzle.getPieces().size(); i++) {
+
+                    SyntheticPiece piece = puzzle.getPieces().get(i);
+                    writer.write(String.join(",", String.valueOf(i), String.valueOf(piece.getRow()),
+                            String.valueOf(piece.getColumn()), String.valueOf(piece.getCenter().getX()),
+                            String.valueOf(piece.getCenter().getY()), String.valueOf(piece.getOuterLocks()),
+                            String.valueOf(piece.getInnerLocks()), String.valueOf(piece.getCorners().size()),
+                            String.format(Locale.ROOT, "%.2f", piece.getRotationAngle()),
+                            piece.getCorners().stream().map(point -> point.getX() + " " + point.getY()).collect(Collectors.joining(";"))));
+                    writer.newLine();
+                }
+            }
+        } catch (IOException e) {
+            throw new ApplicationException("Error while writing puzzle " + imagePath, e);
+        }
+    }
+
+    public static void main(String[] args) {
+
+        if (args.length < 3 || !args[1].matches("[1-9][0-9]*") || !args[2].matches("[1-9][0-9]*")) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+
+        PuzzleGenerator generator = new PuzzleGenerator();
+        generator.setRows(Integer.parseInt(args[1]));
+        generator.setColumns(Integer.parseInt(args[2]));
+        long seed = 0;
+
+        for (int i = 3; i < args.length; i++) {
+
+            if (args[i].equals("--no-border")) {
+                generator.setFlatBorder(false);
+                continue;
+            }
+
+            String[] option = args[i].split("=", 2);
+            if (option.length != 2 || !option[1].matches(option[0].matches("--(width|height|seed)") ? "[0-9]+" : "[0-9]+(\\.[0-9]+)?")) {
+                System.err.println(USAGE);
+                System.exit(1);
+            }
+
+            switch (option[0]) {
+                case "--width":
+                    generator.setWidth(Integer.parseInt(option[1]));
+                    break;
+                case "--height":
+                    generator.setHeight(Integer.parseInt(option[1]));
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(option[1]);
+                    break;
+                case "--background-hue":
+                    generator.setBackgroundHue(Float.parseFloat(option[1]));
+                    break;
+                case "--noise":
+                    generator.setNoise(Float.parseFloat(option[1]));
+                    break;
+                case "--max-rotation":
+                    generator.setMaxRotation(Double.parseDouble(option[1]));
+                    break;
+                default:
+                    System.err.println(USAGE);
+                    System.exit(1);
+            }
+        }
+
+        write(generator.generate(seed), Paths.get(args[0]));
+    }
+}
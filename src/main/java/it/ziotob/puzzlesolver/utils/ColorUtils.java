@@ -0,0 +1,42 @@
+package it.ziotob.puzzlesolver.utils;
+
+public class ColorUtils {
+
+    //sRGB channel values to linear light, the gamma curve is too slow to evaluate for every sample
+    private static final float[] LINEAR = new float[256];
+    //D65 reference white
+    private static final float WHITE_X = 0.95047f;
+    private static final float WHITE_Z = 1.08883f;
+
+    static {
+        for (int i = 0; i < LINEAR.length; i++) {
+
+            double value = i / 255.0;
+            LINEAR[i] = (float) (value <= 0.04045 ? value / 12.92 : Math.pow((value + 0.055) / 1.055, 2.4));
+        }
+    }
+
+    public static void toLab(int rgb, byte[] lab, int offset) {
+        //CIE Lab quantized to bytes: L scaled from [0, 100] to [0, 255], a and b shifted by 128
+
+        float r = LINEAR[(rgb >> 16) & 0xFF];
+        float g = LINEAR[(rgb >> 8) & 0xFF];
+        float b = LINEAR[rgb & 0xFF];
+
+        float fx = labCurve((0.4124f * r + 0.3576f * g + 0.1805f * b) / WHITE_X);
+        float fy = labCurve(0.2126f * r + 0.7152f * g + 0.0722f * b);
+        float fz = labCurve((0.0193f * r + 0.1192f * g + 0.9505f * b) / WHITE_Z);
+
+        lab[offset] = quantize((116 * fy - 16) * 2.55f);
+        lab[offset + 1] = quantize(500 * (fx - fy) + 128);
+        lab[offset + 2] = quantize(200 * (fy - fz) + 128);
+    }
+
+    private static float labCurve(float value) {
+        return value > 0.008856f ? (float) Math.cbrt(value) : 7.787f * value + 16f / 116;
+    }
+
+    private static byte quantize(float value) {
+        return (byte) Math.max(0, Math.min(255, Math.round(value)));
+    }
+}
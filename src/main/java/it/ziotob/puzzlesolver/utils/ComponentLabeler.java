@@ -0,0 +1,132 @@
+package it.ziotob.puzzlesolver.utils;
+
+import it.ziotob.puzzlesolver.model.ComponentLabeling;
+import it.ziotob.puzzlesolver.model.Mask;
+import it.ziotob.puzzlesolver.model.Runs;
+
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class ComponentLabeler {
+
+    private interface RunUnion {
+        void union(int runA, int runB);
+    }
+
+    public static ComponentLabeling label(Mask mask) {
+        //First pass unions 4-connected runs of consecutive rows, second pass assigns compact labels in raster order
+
+        Runs runs = Runs.extract(mask, 0, mask.getHeight());
+        UnionFind unionFind = new UnionFind(runs.getSize());
+
+        int previousRowStart = 0;
+        int rowStart = 0;
+
+        while (rowStart < runs.getSize()) {
+
+            int rowEnd = rowEnd(runs, rowStart);
+
+            if (previousRowStart < rowStart && runs.getRow(previousRowStart) == runs.getRow(rowStart) - 1) {
+                unionRows(runs, previousRowStart, rowStart, rowEnd, unionFind::union);
+            }
+
+            previousRowStart = rowStart;
+            rowStart = rowEnd;
+        }
+
+        return resolveLabels(runs, unionFind::find);
+    }
+
+    public static ComponentLabeling label(Mask mask, int tiles) {
+        //Tiles of rows are labeled on the common ForkJoin pool, seams are merged in the same lock-free union-find.
+        //Runs keep the sequential raster order and roots are the smallest run, so labels match label(mask)
+
+        int tileHeight = Math.max(1, (mask.getHeight() + tiles - 1) / Math.max(1, tiles));
+        int tilesCount = (mask.getHeight() + tileHeight - 1) / tileHeight;
+
+        List<Runs> tileRuns = IntStream.range(0, tilesCount).parallel()
+                .mapToObj(tile -> Runs.extract(mask, tile * tileHeight, Math.min(mask.getHeight(), (tile + 1) * tileHeight)))
+                .collect(Collectors.toList());
+        int[] tileOffsets = new int[tilesCount + 1];
+        for (int tile = 0; tile < tilesCount; tile++) {
+            tileOffsets[tile + 1] = tileOffsets[tile] + tileRuns.get(tile).getSize();
+        }
+
+        Runs runs = Runs.concat(tileRuns);
+        ConcurrentUnionFind unionFind = new ConcurrentUnionFind(runs.getSize());
+
+        IntStream.range(0, tilesCount).parallel().forEach(tile -> {
+
+            int rowStart = tileOffsets[tile];
+            int previousRowStart = rowStart > 0 ? rowStart(runs, rowStart - 1) : rowStart;
+
+            while (rowStart < tileOffsets[tile + 1]) {
+
+                int rowEnd = rowEnd(runs, rowStart);
+
+                if (previousRowStart < rowStart && runs.getRow(previousRowStart) == runs.getRow(rowStart) - 1) {
+                    unionRows(runs, previousRowStart, rowStart, rowEnd, unionFind::union);
+                }
+
+                previousRowStart = rowStart;
+                rowStart = rowEnd;
+            }
+        });
+
+        return resolveLabels(runs, unionFind::find);
+    }
+
+    private static int rowStart(Runs runs, int run) {
+
+        int rowStart = run;
+        while (rowStart > 0 && runs.getRow(rowStart - 1) == runs.getRow(run)) {
+            rowStart--;
+        }
+
+        return rowStart;
+    }
+
+    private static int rowEnd(Runs runs, int rowStart) {
+
+        int rowEnd = rowStart;
+        while (rowEnd < runs.getSize() && runs.getRow(rowEnd) == runs.getRow(rowStart)) {
+            rowEnd++;
+        }
+
+        return rowEnd;
+    }
+
+    private static void unionRows(Runs runs, int previousRowStart, int rowStart, int rowEnd, RunUnion unionFind) {
+
+        int i = previousRowStart;
+        int j = rowStart;
+
+        while (i < rowStart && j < rowEnd) {
+
+            if (runs.overlaps(i, j)) {
+                unionFind.union(i, j);
+            }
+
+            if (runs.getEnd(i) < runs.getEnd(j)) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+    }
+
+    private static ComponentLabeling resolveLabels(Runs runs, IntUnaryOperator find) {
+
+        ComponentLabeling labeling = new ComponentLabeling(runs);
+
+        for (int run = 0; run < runs.getSize(); run++) {
+
+            int root = find.applyAsInt(run);
+            labeling.assign(run, root == run ? labeling.newComponent() : labeling.getLabel(root));
+        }
+
+        return labeling;
+    }
+}
@@ -0,0 +1,52 @@
+package it.ziotob.puzzlesolver.utils;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public class ConcurrentUnionFind {
+    //Lock-free variant of UnionFind: roots are still the smallest element, links are published with CAS
+
+    private final AtomicIntegerArray parent;
+
+    public ConcurrentUnionFind(int size) {
+
+        parent = new AtomicIntegerArray(size);
+        for (int i = 0; i < size; i++) {
+            parent.set(i, i);
+        }
+    }
+
+    public int find(int element) {
+
+        int current = parent.get(element);
+
+        while (current != element) {
+
+            int next = parent.get(current);
+            if (next != current) {
+                parent.compareAndSet(element, current, next);
+            }
+
+            element = current;
+            current = next;
+        }
+
+        return element;
+    }
+
+    public void union(int a, int b) {
+
+        while (true) {
+
+            int rootA = find(a);
+            int rootB = find(b);
+
+            if (rootA == rootB) {
+                return;
+            } else if (rootA < rootB && parent.compareAndSet(rootB, rootB, rootA)) {
+                return;
+            } else if (rootB < rootA && parent.compareAndSet(rootA, rootA, rootB)) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package it.ziotob.puzzlesolver.utils;
+
+import it.ziotob.puzzlesolver.model.Mask;
+import it.ziotob.puzzlesolver.model.OccupancyGrid;
+import it.ziotob.puzzlesolver.model.PointList;
+
+public class ContourTracer {
+
+    //Moore neighbourhood, clockwise on screen (y grows downwards) starting from east
+    private static final int[] DX = {1, 1, 0, -1, -1, -1, 0, 1};
+    private static final int[] DY = {0, 1, 1, 1, 0, -1, -1, -1};
+    private static final int WEST = 4;
+
+    public static PointList trace(PointList points) {
+        return trace(OccupancyGrid.of(points));
+    }
+
+    public static PointList trace(OccupancyGrid grid) {
+        //Traces the outer contour of the component containing the top-left point of the grid
+        return trace(grid.getMask(), grid.getOriginX(), grid.getOriginY());
+    }
+
+    public static PointList trace(Mask mask, int originX, int originY) {
+        //Moore-neighbour tracing with Jacob's stopping criterion, emits the border clockwise starting from the top-left pixel.
+        //Pixels visited twice in a row on the way back from a one pixel wide spur are pruned, so the contour never backtracks
+
+        PointList contour = new PointList();
+        int startY = 0;
+        int startX = -1;
+
+        while (startY < mask.getHeight() && (startX = mask.nextSetBit(0, startY)) < 0) {
+            startY++;
+        }
+
+        if (startX < 0) {
+            return contour;
+        }
+
+        int x = startX;
+        int y = startY;
+        int direction = nextDirection(mask, x, y, WEST);
+
+        if (direction < 0) {
+            contour.add(originX + x, originY + y);
+            return contour;
+        }
+
+        int firstDirection = direction;
+
+        do {
+            emit(contour, originX + x, originY + y);
+
+            x += DX[direction];
+            y += DY[direction];
+            //The background pixel checked just before the move, seen from the new pixel
+            direction = nextDirection(mask, x, y, (direction + ((direction & 1) == 0 ? 6 : 5)) & 7);
+        } while (x != startX || y != startY || direction != firstDirection);
+
+        return pruneClosingSpur(contour);
+    }
+
+    private static int nextDirection(Mask mask, int x, int y, int backtrack) {
+
+        for (int i = 1; i <= 8; i++) {
+
+            int direction = (backtrack + i) & 7;
+            if (mask.get(x + DX[direction], y + DY[direction])) {
+                return direction;
+            }
+        }
+
+        return -1;
+    }
+
+    private static void emit(PointList contour, int x, int y) {
+
+        int size = contour.size();
+
+        if (size >= 2 && contour.getX(size - 2) == x && contour.getY(size - 2) == y) {
+            contour.removeLast();
+        } else {
+            contour.add(x, y);
+        }
+    }
+
+    private static PointList pruneClosingSpur(PointList contour) {
+        //A spur ending on the start pixel is only closed once the trace wraps around
+
+        int first = 0;
+        int last = contour.size() - 1;
+
+        while (last - first >= 2 && contour.getX(last) == contour.getX(first + 1) && contour.getY(last) == contour.getY(first + 1)) {
+            first++;
+            last--;
+        }
+
+        if (first == 0) {
+            return contour;
+        }
+
+        PointList pruned = new PointList(last - first + 1);
+        for (int i = first; i <= last; i++) {
+            pruned.add(contour.getX(i), contour.getY(i));
+        }
+
+        return pruned;
+    }
+}
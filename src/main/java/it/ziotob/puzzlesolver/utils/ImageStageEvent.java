@@ -0,0 +1,23 @@
+package it.ziotob.puzzlesolver.utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("it.ziotob.puzzlesolver.ImageStage")
+@Label("Image Stage")
+@Category("Puzzle Solver")
+@Description("Decoding, background detection, masking or labeling of one image")
+@StackTrace(false)
+public class ImageStageEvent extends Event {
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Items")
+    @Description("Pixels, or pieces found when labeling")
+    long items;
+}
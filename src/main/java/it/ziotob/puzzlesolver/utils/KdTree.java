@@ -0,0 +1,198 @@
+package it.ziotob.puzzlesolver.utils;
+
+import java.util.Arrays;
+
+public class KdTree {
+    //Static k-d tree over float vectors packed in one array. Built once by median splits, the tree is implicit:
+    //the median of a range is its root, the halves on each side are its subtrees
+
+    private final int dimensions;
+    private final int size;
+    private final float[] vectors;
+    private final int[] ids;
+
+    public KdTree(float[] vectors, int[] ids, int dimensions) {
+
+        this.dimensions = dimensions;
+        this.size = ids.length;
+        this.vectors = Arrays.copyOf(vectors, size * dimensions);
+        this.ids = Arrays.copyOf(ids, size);
+
+        build(0, size, 0);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void build(int from, int to, int depth) {
+
+        if (to - from <= 1) {
+            return;
+        }
+
+        int median = (from + to) >>> 1;
+        select(from, to - 1, median, depth % dimensions);
+        build(from, median, depth + 1);
+        build(median + 1, to, depth + 1);
+    }
+
+    private void select(int left, int right, int k, int axis) {
+        //Quickselect: moves the k-th smallest value on the axis to k, smaller ones before and bigger ones after it
+
+        while (left < right) {
+
+            float pivot = vectors[((left + right) >>> 1) * dimensions + axis];
+            int i = left;
+            int j = right;
+
+            while (i <= j) {
+
+                while (vectors[i * dimensions + axis] < pivot) {
+                    i++;
+                }
+                while (vectors[j * dimensions + axis] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int a, int b) {
+
+        for (int d = 0; d < dimensions; d++) {
+
+            float vector = vectors[a * dimensions + d];
+            vectors[a * dimensions + d] = vectors[b * dimensions + d];
+            vectors[b * dimensions + d] = vector;
+        }
+
+        int id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+    }
+
+    public int[] nearest(float[] query, int k) {
+        //Ids of the k nearest vectors by euclidean distance, nearest first
+
+        Neighbours neighbours = new Neighbours(Math.min(k, size));
+        search(0, size, 0, query, neighbours);
+
+        return neighbours.sortedIds();
+    }
+
+    private void search(int from, int to, int depth, float[] query, Neighbours neighbours) {
+
+        if (from >= to || neighbours.capacity == 0) {
+            return;
+        }
+
+        int median = (from + to) >>> 1;
+        int axis = depth % dimensions;
+        neighbours.offer(ids[median], distance(median, query));
+
+        double difference = query[axis] - vectors[median * dimensions + axis];
+        if (difference < 0) {
+
+            search(from, median, depth + 1, query, neighbours);
+            if (!neighbours.isFull() || difference * difference < neighbours.worst()) {
+                search(median + 1, to, depth + 1, query, neighbours);
+            }
+        } else {
+
+            search(median + 1, to, depth + 1, query, neighbours);
+            if (!neighbours.isFull() || difference * difference < neighbours.worst()) {
+                search(from, median, depth + 1, query, neighbours);
+            }
+        }
+    }
+
+    private double distance(int index, float[] query) {
+
+        double sum = 0;
+        for (int d = 0; d < dimensions; d++) {
+
+            double difference = query[d] - vectors[index * dimensions + d];
+            sum += difference * difference;
+        }
+
+        return sum;
+    }
+
+    private static class Neighbours {
+        //Bounded max-heap on squared distances, the root is the worst neighbour kept so far
+
+        private final int capacity;
+        private final double[] distances;
+        private final int[] ids;
+        private int count;
+
+        private Neighbours(int capacity) {
+
+            this.capacity = capacity;
+            this.distances = new double[capacity];
+            this.ids = new int[capacity];
+        }
+
+        private boolean isFull() {
+            return count == capacity;
+        }
+
+        private double worst() {
+            return distances[0];
+        }
+
+        private void offer(int id, double distance) {
+
+            if (count < capacity) {
+
+                int i = count++;
+                while (i > 0 && distances[(i - 1) / 2] < distance) {
+
+                    distances[i] = distances[(i - 1) / 2];
+                    ids[i] = ids[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                distances[i] = distance;
+                ids[i] = id;
+            } else if (distance < distances[0]) {
+
+                int i = 0;
+                while (2 * i + 1 < count) {
+
+                    int child = 2 * i + 2 < count && distances[2 * i + 2] > distances[2 * i + 1] ? 2 * i + 2 : 2 * i + 1;
+                    if (distances[child] <= distance) {
+                        break;
+                    }
+                    distances[i] = distances[child];
+                    ids[i] = ids[child];
+                    i = child;
+                }
+                distances[i] = distance;
+                ids[i] = id;
+            }
+        }
+
+        private int[] sortedIds() {
+
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(distances[a], distances[b]));
+
+            return Arrays.stream(order).mapToInt(i -> ids[i]).toArray();
+        }
+    }
+}
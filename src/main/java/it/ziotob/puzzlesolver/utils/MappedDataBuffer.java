@@ -0,0 +1,30 @@
+package it.ziotob.puzzlesolver.utils;
+
+import java.awt.image.DataBuffer;
+import java.nio.ByteBuffer;
+
+public class MappedDataBuffer extends DataBuffer {
+    //Byte DataBuffer over a (memory mapped) ByteBuffer, pixels are read in place instead of being copied to a byte[]
+
+    private final ByteBuffer buffer;
+
+    public MappedDataBuffer(ByteBuffer buffer) {
+
+        super(TYPE_BYTE, buffer.capacity());
+        this.buffer = buffer;
+    }
+
+    public byte getByte(int i) {
+        return buffer.get(i);
+    }
+
+    @Override
+    public int getElem(int bank, int i) {
+        return buffer.get(i + offsets[bank]) & 0xFF;
+    }
+
+    @Override
+    public void setElem(int bank, int i, int val) {
+        buffer.put(i + offsets[bank], (byte) val);
+    }
+}
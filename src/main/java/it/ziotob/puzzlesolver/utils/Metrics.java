@@ -0,0 +1,243 @@
+package it.ziotob.puzzlesolver.utils;
+
+import it.ziotob.puzzlesolver.exception.ApplicationException;
+
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+public class Metrics {
+    //Timings, item counts and allocated bytes per stage. Disabled by default: start then only reads a volatile flag and
+    //returns a shared timer that records nothing. Allocations are those of the calling thread, work forked to other
+    //threads by parallel streams is timed but not weighed.
+    //Independently of the metrics, timers commit JFR events while a recording enables them: piece steps as
+    //PieceStepEvent, anything else as ImageStageEvent
+
+    public enum Stage {
+        DECODE, BACKGROUND, MASK, LABELING, PIECE, BORDERS, HULL, DEFECTS, OUTER_LOCKS, INNER_LOCKS, CORNERS, ALPHA
+    }
+
+    private static final String DOMAIN = "it.ziotob.puzzlesolver";
+    private static final Map<Stage, StageMetrics> STAGES = new EnumMap<>(Stage.class);
+    private static final Timer DISABLED = new Timer(null, null, null, null, 0, 0);
+    private static final PieceContext NO_PIECE = new PieceContext(0, 0) {
+
+        @Override
+        public void setBorderLength(int borderLength) {
+        }
+
+        @Override
+        public void setConvexityDefects(int convexityDefects) {
+        }
+    };
+    private static final EventType IMAGE_STAGE_EVENT = EventType.getEventType(ImageStageEvent.class);
+    private static final EventType PIECE_STEP_EVENT = EventType.getEventType(PieceStepEvent.class);
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final AtomicLong PIECE_IDS = new AtomicLong();
+    private static volatile boolean enabled;
+
+    static {
+        Arrays.stream(Stage.values()).forEach(stage -> STAGES.put(stage, new StageMetrics()));
+    }
+
+    public static synchronized void enable() {
+        //Stages are registered as MBeans the first time metrics are enabled
+
+        if (enabled) {
+            return;
+        }
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (Map.Entry<Stage, StageMetrics> entry : STAGES.entrySet()) {
+
+                ObjectName name = new ObjectName(DOMAIN + ":type=Stage,name=" + entry.getKey());
+                if (!server.isRegistered(name)) {
+                    server.registerMBean(entry.getValue(), name);
+                }
+            }
+        } catch (JMException e) {
+            throw new ApplicationException("Error while registering metrics MBeans", e);
+        }
+
+        enabled = true;
+    }
+
+    public static void disable() {
+        enabled = false;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void reset() {
+        STAGES.values().forEach(StageMetrics::reset);
+    }
+
+    public static StageMetrics get(Stage stage) {
+        return STAGES.get(stage);
+    }
+
+    public static Timer start(Stage stage) {
+        return start(stage, null);
+    }
+
+    public static Timer start(Stage stage, PieceContext piece) {
+
+        boolean recording = (piece == null ? IMAGE_STAGE_EVENT : PIECE_STEP_EVENT).isEnabled();
+
+        if (!enabled && !recording) {
+            return DISABLED;
+        }
+
+        Event event = null;
+        if (recording) {
+
+            event = piece == null ? new ImageStageEvent() : new PieceStepEvent();
+            event.begin();
+        }
+
+        return new Timer(enabled ? STAGES.get(stage) : null, stage, piece, event, System.nanoTime(), enabled ? allocatedBytes() : 0);
+    }
+
+    public static PieceContext piece(long pixels) {
+        //Pieces only get an id of their own when something may read it, otherwise they share a context that keeps nothing
+
+        if (!enabled && !PIECE_STEP_EVENT.isEnabled()) {
+            return NO_PIECE;
+        }
+
+        return new PieceContext(PIECE_IDS.incrementAndGet(), pixels);
+    }
+
+    public static String summary() {
+        //One JSON object per stage that ran at least once
+
+        return STAGES.entrySet().stream()
+                .filter(entry -> entry.getValue().getCount() > 0)
+                .map(entry -> {
+
+                    StageMetrics metrics = entry.getValue();
+                    return "\"" + entry.getKey() + "\":{\"count\":" + metrics.getCount()
+                            + ",\"items\":" + metrics.getItems()
+                            + ",\"totalMillis\":" + metrics.getTotalMillis()
+                            + ",\"meanMicros\":" + metrics.getMeanMicros()
+                            + ",\"p50Micros\":" + metrics.getP50Micros()
+                            + ",\"p99Micros\":" + metrics.getP99Micros()
+                            + ",\"maxMicros\":" + metrics.getMaxMicros()
+                            + ",\"allocatedBytes\":" + metrics.getAllocatedBytes() + "}";
+                })
+                .collect(Collectors.joining(",", "{", "}"));
+    }
+
+    private static long allocatedBytes() {
+
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+            if (threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+
+        return 0;
+    }
+
+    public static class PieceContext {
+        //What is known so far about the piece under analysis, read by the events of its steps
+
+        private final long id;
+        private final long pixels;
+        private int borderLength;
+        private int convexityDefects;
+
+        private PieceContext(long id, long pixels) {
+
+            this.id = id;
+            this.pixels = pixels;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public void setBorderLength(int borderLength) {
+            this.borderLength = borderLength;
+        }
+
+        public void setConvexityDefects(int convexityDefects) {
+            this.convexityDefects = convexityDefects;
+        }
+    }
+
+    public static class Timer {
+
+        private final StageMetrics metrics;
+        private final Stage stage;
+        private final PieceContext piece;
+        private final Event event;
+        private final long startNanos;
+        private final long startBytes;
+
+        private Timer(StageMetrics metrics, Stage stage, PieceContext piece, Event event, long startNanos, long startBytes) {
+
+            this.metrics = metrics;
+            this.stage = stage;
+            this.piece = piece;
+            this.event = event;
+            this.startNanos = startNanos;
+            this.startBytes = startBytes;
+        }
+
+        public void stop() {
+            stop(1);
+        }
+
+        public void stop(long items) {
+
+            if (metrics != null) {
+                metrics.record(System.nanoTime() - startNanos, items, Math.max(0, allocatedBytes() - startBytes));
+            }
+
+            if (event != null) {
+
+                event.end();
+                if (event.shouldCommit()) {
+                    commit(items);
+                }
+            }
+        }
+
+        private void commit(long items) {
+
+            if (event instanceof PieceStepEvent) {
+
+                PieceStepEvent pieceStep = (PieceStepEvent) event;
+                pieceStep.step = stage.name();
+                pieceStep.pieceId = piece.id;
+                pieceStep.pixels = piece.pixels;
+                pieceStep.borderLength = piece.borderLength;
+                pieceStep.convexityDefects = piece.convexityDefects;
+                pieceStep.items = items;
+            } else {
+
+                ImageStageEvent imageStage = (ImageStageEvent) event;
+                imageStage.stage = stage.name();
+                imageStage.items = items;
+            }
+
+            event.commit();
+        }
+    }
+}
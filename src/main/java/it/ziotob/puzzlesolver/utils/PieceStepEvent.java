@@ -0,0 +1,35 @@
+package it.ziotob.puzzlesolver.utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("it.ziotob.puzzlesolver.PieceStep")
+@Label("Piece Step")
+@Category("Puzzle Solver")
+@Description("One step of the analysis of a piece, border length and defects are 0 until the step computing them")
+@StackTrace(false)
+public class PieceStepEvent extends Event {
+
+    @Label("Step")
+    String step;
+
+    @Label("Piece Id")
+    long pieceId;
+
+    @Label("Pixels")
+    long pixels;
+
+    @Label("Border Length")
+    int borderLength;
+
+    @Label("Convexity Defects")
+    int convexityDefects;
+
+    @Label("Items")
+    @Description("Contour points, hull points, defects, locks or corners produced by the step")
+    long items;
+}
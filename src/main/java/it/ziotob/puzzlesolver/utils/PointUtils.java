@@ -4,7 +4,9 @@ import it.ziotob.puzzlesolver.exception.ApplicationException;
 import it.ziotob.puzzlesolver.model.Point;
 import javafx.util.Pair;
 
+import java.awt.geom.Point2D;
 import java.util.*;
+import java.util.function.ToDoubleFunction;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -21,9 +23,9 @@ public class PointUtils {
             Point[] H = new Point[2 * n];
 
             P = P.stream()
-                    .sorted((a, b) -> a.getX().equals(b.getX()) ?
-                            (a.getY().compareTo(b.getY())) :
-                            (a.getX().compareTo(b.getX())))
+                    .sorted((a, b) -> a.getX() == b.getX() ?
+                            Integer.compare(a.getY(), b.getY()) :
+                            Integer.compare(a.getX(), b.getX()))
                     .collect(Collectors.toList());
 
             // Build lower hull
@@ -48,6 +50,56 @@ public class PointUtils {
         }
     }
 
+    public static int[] convexHullIndexes(List<Point> contour) {
+        //Melkman's algorithm on a simple closed contour, O(n) with no sorting. The deque holds the hull of the points seen
+        //so far with the latest hull vertex at both ends. Hull vertices are returned as contour indexes in contour order
+
+        int n = contour.size();
+        if (n < 3) {
+            return IntStream.range(0, n).toArray();
+        }
+
+        //Points collinear with the first ones are not hull vertices, the starting triangle must not be degenerate
+        int second = 1;
+        int third = 2;
+        while (third < n && cross(contour.get(0), contour.get(second), contour.get(third)) == 0) {
+            second = third++;
+        }
+        if (third == n) {
+            return new int[]{0, second};
+        }
+
+        int[] deque = new int[2 * n + 4];
+        int bottom = n;
+        int top = n + 3;
+        deque[bottom] = third;
+        deque[top] = third;
+        boolean counterClockwise = cross(contour.get(0), contour.get(second), contour.get(third)) > 0;
+        deque[bottom + 1] = counterClockwise ? 0 : second;
+        deque[bottom + 2] = counterClockwise ? second : 0;
+
+        for (int i = third + 1; i < n; i++) {
+
+            Point point = contour.get(i);
+            if (cross(contour.get(deque[bottom]), contour.get(deque[bottom + 1]), point) > 0
+                    && cross(contour.get(deque[top - 1]), contour.get(deque[top]), point) > 0) {
+                continue;
+            }
+
+            while (top - bottom > 2 && cross(contour.get(deque[bottom]), contour.get(deque[bottom + 1]), point) <= 0) {
+                bottom++;
+            }
+            deque[--bottom] = i;
+
+            while (top - bottom > 2 && cross(contour.get(deque[top - 1]), contour.get(deque[top]), point) <= 0) {
+                top--;
+            }
+            deque[++top] = i;
+        }
+
+        return Arrays.stream(deque, bottom, top).sorted().toArray();
+    }
+
     public static float pDistance(Point p, Point segA, Point segB) {
 
         float A = p.getX() - segA.getX(); // position of point rel one end of line
@@ -137,38 +189,60 @@ public class PointUtils {
         return new Point((a.getX() + b.getX()) / 2, (a.getY() + b.getY()) / 2);
     }
 
-    public static Optional<Point> detectInternalPoint(List<Point> perimeter, List<Point> points) {
-        return points.parallelStream().filter(p -> isInside(p, perimeter)).findAny();
+    public static double polygonArea(List<Point> polygon) {
+        //Shoelace formula, the polygon is closed between its last and first vertex
+
+        long doubleArea = 0;
+        for (int i = 0; i < polygon.size(); i++) {
+
+            Point a = polygon.get(i);
+            Point b = polygon.get((i + 1) % polygon.size());
+            doubleArea += (long) a.getX() * b.getY() - (long) b.getX() * a.getY();
+        }
+
+        return Math.abs(doubleArea) / 2.0;
     }
 
-    private static boolean isInside(Point point, List<Point> perimeter) {
+    public static Point2D polygonCentroid(List<Point> polygon) {
+        //Centroid of the area enclosed by the closed polygon, the mean of its vertices when that area is empty
 
-        List<Point> collisions = perimeter.stream()
-                .filter(p -> p.getX().equals(point.getX()) || p.getY().equals(point.getY()))
-                .collect(Collectors.toList());
+        long doubleArea = 0;
+        double sumX = 0;
+        double sumY = 0;
+        for (int i = 0; i < polygon.size(); i++) {
 
-        boolean xRightIncluded = collisions.stream().filter(p -> p.getY().equals(point.getY())).anyMatch(p -> p.getX() > point.getX());
-        boolean xLeftIncluded = collisions.stream().filter(p -> p.getY().equals(point.getY())).anyMatch(p -> p.getX() < point.getX());
-        boolean yUpperIncluded = collisions.stream().filter(p -> p.getX().equals(point.getX())).anyMatch(p -> p.getY() > point.getY());
-        boolean yLowerIncluded = collisions.stream().filter(p -> p.getX().equals(point.getX())).anyMatch(p -> p.getY() < point.getY());
+            Point a = polygon.get(i);
+            Point b = polygon.get((i + 1) % polygon.size());
+            long cross = (long) a.getX() * b.getY() - (long) b.getX() * a.getY();
+            doubleArea += cross;
+            sumX += (double) (a.getX() + b.getX()) * cross;
+            sumY += (double) (a.getY() + b.getY()) * cross;
+        }
+
+        if (doubleArea == 0) {
+            return new Point2D.Double(polygon.stream().mapToInt(Point::getX).average().orElse(0),
+                    polygon.stream().mapToInt(Point::getY).average().orElse(0));
+        }
 
-        return xRightIncluded && xLeftIncluded && yUpperIncluded && yLowerIncluded;
+        return new Point2D.Double(sumX / (3.0 * doubleArea), sumY / (3.0 * doubleArea));
     }
 
-    public static List<Point> negative(List<Point> points) {
+    public static int boundaryLatticePoints(List<Point> polygon) {
+        //Integer points lying on the closed polygon edges, an edge holds gcd(|dx|, |dy|) of them excluding its end
 
-        Point min = points.stream().reduce(new Point(Integer.MAX_VALUE, Integer.MAX_VALUE),
-                (prev, curr) -> new Point(Math.min(prev.getX(), curr.getX()), Math.min(prev.getY(), curr.getY())));
-        Point max = points.stream().reduce(new Point(Integer.MIN_VALUE, Integer.MIN_VALUE),
-                (prev, curr) -> new Point(Math.max(prev.getX(), curr.getX()), Math.max(prev.getY(), curr.getY())));
-        Set<Point> pointsSet = new HashSet<>(points);
+        int count = 0;
+        for (int i = 0; i < polygon.size(); i++) {
 
-        return IntStream.range(min.getX(), max.getX())
-                .mapToObj(x -> IntStream.range(min.getY(), max.getY())
-                        .filter(y -> !pointsSet.contains(new Point(x, y)))
-                        .mapToObj(y -> new Point(x, y)))
-                .flatMap(s -> s)
-                .collect(Collectors.toList());
+            Point a = polygon.get(i);
+            Point b = polygon.get((i + 1) % polygon.size());
+            count += gcd(Math.abs(a.getX() - b.getX()), Math.abs(a.getY() - b.getY()));
+        }
+
+        return count;
+    }
+
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
     }
 
     public static double getDistance(Point a, Point b) {
@@ -187,17 +261,79 @@ public class PointUtils {
         return new Point(tempX1 + center.getX(), tempY1 + center.getY());
     }
 
-    public static Optional<Point> getClosestPoint(List<Point> points, Point point) {
+    public static Point rotate(Point point, Point center, double alpha) {
 
-        return points.stream()
-                .min(Comparator.comparingDouble(p -> PointUtils.getDistance(p, point)));
+        double alphaRadians = Math.toRadians(alpha);
+        int x1 = point.getX() - center.getX();
+        int y1 = point.getY() - center.getY();
+
+        int tempX1 = (int) Math.round(x1 * Math.cos(alphaRadians) - y1 * Math.sin(alphaRadians));
+        int tempY1 = (int) Math.round(x1 * Math.sin(alphaRadians) + y1 * Math.cos(alphaRadians));
+
+        return new Point(tempX1 + center.getX(), tempY1 + center.getY());
     }
 
-    public static List<Point> sortWithBorder(List<Point> points, List<Point> borderPoints) {
+    public static double minimumAreaRectangleAngle(List<Point> convexHull) {
+        //Rotating calipers: the minimum area enclosing rectangle has a side on a hull edge. For each edge the farthest
+        //points along it, against it and away from it only move forward around the hull, so the whole scan is O(hull size)
+
+        int n = convexHull.size();
+        double bestArea = Double.MAX_VALUE;
+        double bestAngle = 0;
+        int front = 0;
+        int back = 0;
+        int top = 0;
+
+        for (int i = 0; i < n; i++) {
+
+            Point a = convexHull.get(i);
+            Point b = convexHull.get((i + 1) % n);
+            double length = getDistance(a, b);
+            if (length == 0) {
+                continue;
+            }
+            double ux = (b.getX() - a.getX()) / length;
+            double uy = (b.getY() - a.getY()) / length;
+
+            if (bestArea == Double.MAX_VALUE) {
+                front = top = back = (i + 1) % n;
+            }
+            front = advance(convexHull, front, p -> (p.getX() - a.getX()) * ux + (p.getY() - a.getY()) * uy);
+            top = advance(convexHull, top, p -> Math.abs((p.getX() - a.getX()) * uy - (p.getY() - a.getY()) * ux));
+            if (bestArea == Double.MAX_VALUE) {
+                back = front;
+            }
+            back = advance(convexHull, back, p -> -((p.getX() - a.getX()) * ux + (p.getY() - a.getY()) * uy));
+
+            Point frontPoint = convexHull.get(front);
+            Point backPoint = convexHull.get(back);
+            Point topPoint = convexHull.get(top);
+            double width = (frontPoint.getX() - backPoint.getX()) * ux + (frontPoint.getY() - backPoint.getY()) * uy;
+            double height = Math.abs((topPoint.getX() - a.getX()) * uy - (topPoint.getY() - a.getY()) * ux);
+
+            if (width * height < bestArea) {
 
-        Set<Point> pointsSet = new HashSet<>(points);
-        return borderPoints.stream()
-                .filter(pointsSet::contains)
-                .collect(Collectors.toList());
+                bestArea = width * height;
+                bestAngle = Math.toDegrees(Math.atan2(uy, ux));
+            }
+        }
+
+        return bestAngle;
+    }
+
+    private static int advance(List<Point> convexHull, int index, ToDoubleFunction<Point> value) {
+
+        int n = convexHull.size();
+        for (int steps = 0; steps < n && value.applyAsDouble(convexHull.get((index + 1) % n)) >= value.applyAsDouble(convexHull.get(index)); steps++) {
+            index = (index + 1) % n;
+        }
+
+        return index;
+    }
+
+    public static Optional<Point> getClosestPoint(List<Point> points, Point point) {
+
+        return points.stream()
+                .min(Comparator.comparingDouble(p -> PointUtils.getDistance(p, point)));
     }
 }
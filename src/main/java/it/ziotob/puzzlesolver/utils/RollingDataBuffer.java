@@ -0,0 +1,45 @@
+package it.ziotob.puzzlesolver.utils;
+
+import java.awt.image.DataBuffer;
+
+public class RollingDataBuffer extends DataBuffer {
+    //DataBuffer of a whole image that only keeps its last elements: element i is stored at i modulo a power of two at
+    //least as big as the window, so a reader decoding from the top writes a full height image in the memory of a strip
+
+    private final int mask;
+    private final byte[] bytes;
+    private final int[] ints;
+
+    public RollingDataBuffer(int dataType, int size, int window) {
+
+        super(dataType, size);
+        int capacity = Integer.highestOneBit(Math.max(1, window - 1)) << 1;
+        this.mask = capacity - 1;
+        this.bytes = dataType == TYPE_BYTE ? new byte[capacity] : null;
+        this.ints = dataType == TYPE_BYTE ? null : new int[capacity];
+    }
+
+    public byte getByte(int i) {
+        return bytes[i & mask];
+    }
+
+    @Override
+    public int getElem(int bank, int i) {
+
+        int index = (i + offsets[bank]) & mask;
+
+        return bytes != null ? bytes[index] & 0xFF : ints[index];
+    }
+
+    @Override
+    public void setElem(int bank, int i, int val) {
+
+        int index = (i + offsets[bank]) & mask;
+
+        if (bytes != null) {
+            bytes[index] = (byte) val;
+        } else {
+            ints[index] = dataType == TYPE_USHORT ? val & 0xFFFF : val;
+        }
+    }
+}
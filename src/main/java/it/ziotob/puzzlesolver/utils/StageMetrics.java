@@ -0,0 +1,106 @@
+package it.ziotob.puzzlesolver.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public class StageMetrics implements StageMetricsMBean {
+    //Latencies go in power of two buckets of microseconds, percentiles are the upper bound of their bucket capped to the max
+
+    private static final int BUCKETS = 40;
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder items = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+    public void record(long nanos, long itemCount, long bytes) {
+
+        count.increment();
+        items.add(itemCount);
+        totalNanos.add(nanos);
+        allocatedBytes.add(bytes);
+        maxNanos.accumulate(nanos);
+        histogram.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos / 1000)));
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public long getItems() {
+        return items.sum();
+    }
+
+    @Override
+    public long getTotalMillis() {
+        return totalNanos.sum() / 1_000_000;
+    }
+
+    @Override
+    public long getMeanMicros() {
+
+        long samples = count.sum();
+
+        return samples == 0 ? 0 : totalNanos.sum() / samples / 1000;
+    }
+
+    @Override
+    public long getP50Micros() {
+        return percentile(0.5);
+    }
+
+    @Override
+    public long getP99Micros() {
+        return percentile(0.99);
+    }
+
+    @Override
+    public long getMaxMicros() {
+        return maxNanos.get() / 1000;
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    @Override
+    public void reset() {
+
+        count.reset();
+        items.reset();
+        totalNanos.reset();
+        allocatedBytes.reset();
+        maxNanos.reset();
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            histogram.set(bucket, 0);
+        }
+    }
+
+    private long percentile(double quantile) {
+
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+
+            counts[bucket] = histogram.get(bucket);
+            total += counts[bucket];
+        }
+
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+
+            seen += counts[bucket];
+            if (total > 0 && seen >= Math.ceil(quantile * total)) {
+                return Math.min(1L << bucket, getMaxMicros());
+            }
+        }
+
+        return 0;
+    }
+}
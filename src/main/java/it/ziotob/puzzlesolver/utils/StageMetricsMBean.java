@@ -0,0 +1,22 @@
+package it.ziotob.puzzlesolver.utils;
+
+public interface StageMetricsMBean {
+
+    long getCount();
+
+    long getItems();
+
+    long getTotalMillis();
+
+    long getMeanMicros();
+
+    long getP50Micros();
+
+    long getP99Micros();
+
+    long getMaxMicros();
+
+    long getAllocatedBytes();
+
+    void reset();
+}
@@ -0,0 +1,148 @@
+package it.ziotob.puzzlesolver.utils;
+
+import it.ziotob.puzzlesolver.model.Mask;
+import it.ziotob.puzzlesolver.model.PointList;
+import it.ziotob.puzzlesolver.model.Runs;
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+@RequiredArgsConstructor
+public class StripLabeler {
+    //Incremental version of ComponentLabeler: only the previous row and the components touching it are kept,
+    //a component is emitted as soon as a row does not extend it anymore
+
+    private final Consumer<PointList> consumer;
+    private final List<OpenComponent> openComponents = new ArrayList<>();
+    private int[] previousStarts = new int[0];
+    private int[] previousEnds = new int[0];
+    private OpenComponent[] previousComponents = new OpenComponent[0];
+    private int previousSize = 0;
+    private int nextRow = 0;
+
+    private static class OpenComponent {
+
+        private final Runs runs = new Runs(16);
+        private OpenComponent mergedInto;
+        private int lastRow;
+
+        private OpenComponent root() {
+
+            OpenComponent root = this;
+            while (root.mergedInto != null) {
+                root = root.mergedInto;
+            }
+
+            return root;
+        }
+    }
+
+    public void addStrip(Mask strip, int firstRow) {
+
+        for (int y = 0; y < strip.getHeight(); y++) {
+            addRow(strip, y, firstRow + y);
+        }
+    }
+
+    public void finish() {
+
+        openComponents.forEach(this::emit);
+        openComponents.clear();
+        previousSize = 0;
+    }
+
+    private void addRow(Mask strip, int stripRow, int row) {
+
+        if (row != nextRow) {
+            previousSize = 0;
+        }
+        nextRow = row + 1;
+
+        int[] starts = new int[Math.max(4, previousSize)];
+        int[] ends = new int[starts.length];
+        OpenComponent[] components = new OpenComponent[starts.length];
+        int size = 0;
+        int previous = 0;
+
+        for (int x = strip.nextSetBit(0, stripRow); x >= 0; x = strip.nextSetBit(ends[size - 1], stripRow)) {
+
+            if (size == starts.length) {
+
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+                components = Arrays.copyOf(components, size * 2);
+            }
+
+            int end = strip.nextClearBit(x, stripRow);
+            OpenComponent component = null;
+
+            while (previous < previousSize && previousEnds[previous] <= x) {
+                previous++;
+            }
+            for (int i = previous; i < previousSize && previousStarts[i] < end; i++) {
+                component = component == null ? previousComponents[i].root() : merge(component, previousComponents[i].root());
+            }
+
+            if (component == null) {
+
+                component = new OpenComponent();
+                openComponents.add(component);
+            }
+
+            component.runs.add(row, x, end);
+            component.lastRow = row;
+            starts[size] = x;
+            ends[size] = end;
+            components[size] = component;
+            size++;
+        }
+
+        previousStarts = starts;
+        previousEnds = ends;
+        previousComponents = components;
+        previousSize = size;
+
+        closeComponents(row);
+    }
+
+    private OpenComponent merge(OpenComponent a, OpenComponent b) {
+
+        if (a == b) {
+            return a;
+        }
+
+        OpenComponent target = a.runs.getSize() >= b.runs.getSize() ? a : b;
+        OpenComponent source = target == a ? b : a;
+
+        target.runs.append(source.runs);
+        target.lastRow = Math.max(target.lastRow, source.lastRow);
+        source.mergedInto = target;
+
+        return target;
+    }
+
+    private void closeComponents(int row) {
+
+        openComponents.removeIf(component -> {
+
+            if (component.mergedInto != null) {
+                return true;
+            } else if (component.lastRow < row) {
+
+                emit(component);
+                return true;
+            } else {
+                return false;
+            }
+        });
+    }
+
+    private void emit(OpenComponent component) {
+
+        component.runs.sort();
+        consumer.accept(component.runs.toPointList());
+    }
+}
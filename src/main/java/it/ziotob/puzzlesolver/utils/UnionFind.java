@@ -0,0 +1,38 @@
+package it.ziotob.puzzlesolver.utils;
+
+public class UnionFind {
+    //The root of every set is its smallest element, so labels do not depend on the order of unions
+
+    private final int[] parent;
+
+    public UnionFind(int size) {
+
+        parent = new int[size];
+        for (int i = 0; i < size; i++) {
+            parent[i] = i;
+        }
+    }
+
+    public int find(int element) {
+
+        while (parent[element] != element) {
+
+            parent[element] = parent[parent[element]];
+            element = parent[element];
+        }
+
+        return element;
+    }
+
+    public void union(int a, int b) {
+
+        int rootA = find(a);
+        int rootB = find(b);
+
+        if (rootA < rootB) {
+            parent[rootB] = rootA;
+        } else if (rootB < rootA) {
+            parent[rootA] = rootB;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package it.ziotob.puzzlesolver.model;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+public class CompatibilityMatrixTest {
+
+    @Test
+    public void shouldRankMatingEdgeFirst() {
+
+        List<Piece> pieces = SyntheticEdges.chainOfPieces(200, new Random(3));
+        CompatibilityMatrix matrix = new CompatibilityMatrix(pieces, 5);
+
+        for (int piece = 0; piece < pieces.size(); piece += 17) {
+
+            List<EdgeMatch> matches = matrix.findMatches(piece, 1);
+
+            Assertions.assertThat(matches).hasSize(5);
+            Assertions.assertThat(matches.get(0).getOtherPiece()).isEqualTo((piece + 1) % pieces.size());
+            Assertions.assertThat(matches.get(0).getOtherEdge()).isEqualTo(3);
+            Assertions.assertThat(matches.get(0).getScore()).isEqualTo(0f);
+        }
+    }
+
+    @Test
+    public void shouldStoreSameSymmetricScoresOffHeap() {
+
+        List<Piece> pieces = SyntheticEdges.chainOfPieces(40, new Random(5));
+        CompatibilityMatrix onHeap = new CompatibilityMatrix(pieces, 3);
+        CompatibilityMatrix offHeap = new CompatibilityMatrix(pieces, 3, ForkJoinPool.commonPool(), 0);
+
+        Assertions.assertThat(onHeap.isOffHeap()).isFalse();
+        Assertions.assertThat(offHeap.isOffHeap()).isTrue();
+        Assertions.assertThat(IntStream.range(0, 160 * 160).boxed().filter(pair -> {
+
+            int edgeId = pair / 160;
+            int otherId = pair % 160;
+            float score = onHeap.get(edgeId / 4, edgeId % 4, otherId / 4, otherId % 4);
+
+            return score != offHeap.get(edgeId / 4, edgeId % 4, otherId / 4, otherId % 4)
+                    || score != onHeap.get(otherId / 4, otherId % 4, edgeId / 4, edgeId % 4);
+        }).count()).isEqualTo(0L);
+    }
+
+    @Test
+    public void shouldRejectFlatEdgesAndSamePiece() {
+
+        List<Piece> pieces = SyntheticEdges.chainOfPieces(10, new Random(7));
+        CompatibilityMatrix matrix = new CompatibilityMatrix(pieces, 3);
+
+        Assertions.assertThat(matrix.get(0, 0, 1, 2)).isEqualTo(Float.POSITIVE_INFINITY);
+        Assertions.assertThat(matrix.get(0, 1, 0, 3)).isEqualTo(Float.POSITIVE_INFINITY);
+        Assertions.assertThat(matrix.findMatches(0, 0)).isEmpty();
+    }
+}
@@ -0,0 +1,53 @@
+package it.ziotob.puzzlesolver.model;
+
+import org.assertj.core.api.Assertions;
+import org.assertj.core.data.Offset;
+import org.junit.Test;
+
+public class ContourTest {
+
+    private static Contour square() {
+
+        PointList points = new PointList();
+        points.add(0, 0);
+        points.add(1, 0);
+        points.add(2, 0);
+        points.add(2, 1);
+        points.add(2, 2);
+        points.add(1, 2);
+        points.add(0, 2);
+        points.add(0, 1);
+
+        return new Contour(points);
+    }
+
+    @Test
+    public void shouldFindIndexOfPoints() {
+
+        Contour contour = square();
+
+        Assertions.assertThat(contour.indexOf(new Point(2, 1))).isEqualTo(3);
+        Assertions.assertThat(contour.indexOf(0, 1)).isEqualTo(7);
+        Assertions.assertThat(contour.indexOf(1, 1)).isEqualTo(-1);
+    }
+
+    @Test
+    public void shouldWrapRangesAroundTheStart() {
+
+        Contour contour = square();
+
+        Assertions.assertThat(contour.range(6, 2)).containsExactly(new Point(0, 2), new Point(0, 1), new Point(0, 0), new Point(1, 0));
+        Assertions.assertThat(contour.range(3, 3)).isEmpty();
+        Assertions.assertThat(contour.span(6, 2)).isEqualTo(4);
+    }
+
+    @Test
+    public void shouldMeasureArcLength() {
+
+        Contour contour = square();
+
+        Assertions.assertThat(contour.getLength()).isCloseTo(8.0, Offset.offset(1e-9));
+        Assertions.assertThat(contour.arcLength(6, 2)).isCloseTo(4.0, Offset.offset(1e-9));
+        Assertions.assertThat(contour.indexAtArcLength(10.5)).isEqualTo(2);
+    }
+}
@@ -0,0 +1,35 @@
+package it.ziotob.puzzlesolver.model;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+public class EdgeIndexTest {
+
+    @Test
+    public void shouldFindMatingEdgeFirst() {
+
+        List<Piece> pieces = SyntheticEdges.chainOfPieces(1000, new Random(3));
+        EdgeIndex index = new EdgeIndex(pieces);
+
+        for (int piece = 0; piece < pieces.size(); piece += 97) {
+
+            List<EdgeMatch> matches = index.findMatches(piece, 1, 5);
+
+            Assertions.assertThat(matches).isNotEmpty();
+            Assertions.assertThat(matches.get(0).getOtherPiece()).isEqualTo((piece + 1) % pieces.size());
+            Assertions.assertThat(matches.get(0).getOtherEdge()).isEqualTo(3);
+            Assertions.assertThat(matches.get(0).getScore()).isEqualTo(0f);
+        }
+    }
+
+    @Test
+    public void shouldNotMatchFlatEdges() {
+
+        EdgeIndex index = new EdgeIndex(SyntheticEdges.chainOfPieces(10, new Random(5)));
+
+        Assertions.assertThat(index.findMatches(0, 0, 3)).isEmpty();
+    }
+}
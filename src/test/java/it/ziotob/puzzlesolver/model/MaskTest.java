@@ -0,0 +1,45 @@
+package it.ziotob.puzzlesolver.model;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class MaskTest {
+
+    @Test
+    public void shouldFindSetBitsAcrossWords() {
+
+        Mask mask = new Mask(130, 2);
+        mask.set(0, 0);
+        mask.set(64, 0);
+        mask.set(129, 1);
+
+        Assertions.assertThat(mask.nextSetBit(1, 0)).isEqualTo(64);
+        Assertions.assertThat(mask.nextSetBit(65, 0)).isEqualTo(-1);
+        Assertions.assertThat(mask.nextSetBit(0, 1)).isEqualTo(129);
+        Assertions.assertThat(mask.nextClearBit(0, 0)).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldInvertOnlyPixelsInsideTheImage() {
+
+        Mask mask = new Mask(70, 3);
+        mask.set(3, 1);
+
+        Mask inverted = mask.invert();
+
+        Assertions.assertThat(inverted.cardinality()).isEqualTo(70 * 3 - 1);
+        Assertions.assertThat(inverted.get(3, 1)).isFalse();
+        Assertions.assertThat(inverted.nextClearBit(0, 2)).isEqualTo(70);
+    }
+
+    @Test
+    public void shouldNotContainPointsOutsideBounds() {
+
+        Mask mask = new Mask(4, 4);
+        mask.set(3, 3);
+
+        Assertions.assertThat(mask.get(4, 3)).isFalse();
+        Assertions.assertThat(mask.get(-1, 3)).isFalse();
+        Assertions.assertThat(mask.toPoints()).containsExactly(new Point(3, 3));
+    }
+}
@@ -0,0 +1,46 @@
+package it.ziotob.puzzlesolver.model;
+
+import org.assertj.core.api.Assertions;
+import org.assertj.core.data.Offset;
+import org.junit.Test;
+
+public class MomentsTest {
+
+    @Test
+    public void shouldSumRunsLikeSinglePixels() {
+
+        Moments runs = new Moments();
+        runs.addRun(7, 3, 11);
+        runs.addRun(8, 0, 1);
+        Moments pixels = new Moments();
+        for (int x = 3; x < 11; x++) {
+            pixels.add(x, 7);
+        }
+        pixels.add(0, 8);
+
+        Assertions.assertThat(runs.toString()).isEqualTo(pixels.toString());
+    }
+
+    @Test
+    public void shouldRoundCentroidHalfUp() {
+
+        Moments moments = new Moments();
+        moments.add(1, 1);
+        moments.add(2, 4);
+
+        Assertions.assertThat(moments.getCentroid()).isEqualTo(new Point(2, 3));
+        moments.remove(2, 4);
+        Assertions.assertThat(moments.getCentroid()).isEqualTo(new Point(1, 1));
+    }
+
+    @Test
+    public void shouldFindPrincipalAxis() {
+
+        Moments moments = new Moments();
+        for (int i = 0; i < 20; i++) {
+            moments.add(i, i);
+        }
+
+        Assertions.assertThat(moments.getOrientation()).isCloseTo(45.0, Offset.offset(1e-9));
+    }
+}
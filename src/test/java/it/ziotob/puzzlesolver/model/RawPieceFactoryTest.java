@@ -0,0 +1,103 @@
+package it.ziotob.puzzlesolver.model;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Point2D;
+
+public class RawPieceFactoryTest {
+
+    private static final int SIDE = 96;
+    private static final int TAB = 1;
+    private static final int BLANK = -1;
+    private static final int FLAT = 0;
+
+    @Test
+    public void shouldPairShouldersOfTabNextToBlank() {
+
+        AffineTransform transform = transform(25);
+        RawPiece piece = RawPieceFactory.factory(piece(transform, TAB, BLANK, FLAT, FLAT));
+
+        //The blank and the shoulder of the tab next to it are also round enough for a tab
+        Assertions.assertThat(piece.getOuterLocks()).hasSize(1);
+        Assertions.assertThat(piece.getInnerLocks()).hasSize(1);
+        Assertions.assertThat(piece.getOuterLocks().get(0).getCentroid().distance(lockCenter(transform, 0, TAB)))
+                .isLessThan(SIDE * 0.15);
+        Assertions.assertThat(piece.getInnerLocks().get(0).getCentroid().distance(lockCenter(transform, 1, BLANK)))
+                .isLessThan(SIDE * 0.15);
+    }
+
+    @Test
+    public void shouldNotTakeCornerBetweenBlanksForTab() {
+
+        AffineTransform transform = transform(30);
+        RawPiece piece = RawPieceFactory.factory(piece(transform, BLANK, BLANK, BLANK, FLAT));
+
+        //Between the deepest points of two blanks lies a corner of the piece, as round as a tab but far bigger
+        Assertions.assertThat(piece.getOuterLocks()).isEmpty();
+        Assertions.assertThat(piece.getInnerLocks()).hasSize(3);
+    }
+
+    @Test
+    public void shouldPairAlternatingTabsAndBlanks() {
+
+        RawPiece piece = RawPieceFactory.factory(piece(transform(24), TAB, BLANK, TAB, BLANK));
+
+        Assertions.assertThat(piece.getOuterLocks()).hasSize(2);
+        Assertions.assertThat(piece.getInnerLocks()).hasSize(2);
+    }
+
+    private static AffineTransform transform(double angle) {
+
+        AffineTransform transform = new AffineTransform();
+        transform.translate(2 * SIDE, 2 * SIDE);
+        transform.rotate(Math.toRadians(angle));
+        transform.scale(SIDE, SIDE);
+
+        return transform;
+    }
+
+    private static PointList piece(AffineTransform transform, int... locks) {
+        //Unit square with a circular lock on each edge, clockwise from the top one, as cut by PuzzleGenerator
+
+        Area area = new Area(new Rectangle.Double(-0.5, -0.5, 1, 1));
+        for (int edge = 0; edge < 4; edge++) {
+
+            if (locks[edge] == FLAT) {
+                continue;
+            }
+
+            Point2D center = lockCenter(new AffineTransform(), edge, locks[edge]);
+            Area circle = new Area(new Ellipse2D.Double(center.getX() - 0.15, center.getY() - 0.15, 0.3, 0.3));
+            if (locks[edge] == TAB) {
+                area.add(circle);
+            } else {
+                area.subtract(circle);
+            }
+        }
+
+        Shape shape = transform.createTransformedShape(area);
+        PointList points = new PointList();
+        for (int y = 0; y < 4 * SIDE; y++) {
+            for (int x = 0; x < 4 * SIDE; x++) {
+                if (shape.contains(x + 0.5, y + 0.5)) {
+                    points.add(x, y);
+                }
+            }
+        }
+
+        return points;
+    }
+
+    private static Point2D lockCenter(AffineTransform transform, int edge, int lock) {
+
+        double distance = 0.5 + lock * 0.12;
+
+        return transform.transform(new Point2D.Double(edge == 1 ? distance : edge == 3 ? -distance : 0,
+                edge == 2 ? distance : edge == 0 ? -distance : 0), null);
+    }
+}
@@ -0,0 +1,101 @@
+package it.ziotob.puzzlesolver.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class SyntheticEdges {
+    //Pieces with edge profiles only: every shared edge gets a random lock and its mate is the same profile walked
+    //backwards and negated, so mating edges score exactly 0
+
+    public static List<Piece> shuffledPuzzle(int rows, int columns, Random random) {
+        //Rows x columns pieces with flat sides on the frame, randomly rotated and shuffled
+
+        float[][][] sides = new float[rows * columns][PieceEdges.EDGES][];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+
+                int cell = row * columns + column;
+                sides[cell][0] = row == 0 ? new float[PieceEdges.SAMPLES] : mate(sides[cell - columns][2]);
+                sides[cell][3] = column == 0 ? new float[PieceEdges.SAMPLES] : mate(sides[cell - 1][1]);
+                sides[cell][1] = column == columns - 1 ? new float[PieceEdges.SAMPLES] : lockProfile(random);
+                sides[cell][2] = row == rows - 1 ? new float[PieceEdges.SAMPLES] : lockProfile(random);
+            }
+        }
+
+        List<Piece> pieces = new ArrayList<>();
+        for (float[][] cellSides : sides) {
+
+            int rotation = random.nextInt(PieceEdges.EDGES);
+            float[][] edges = new float[PieceEdges.EDGES][];
+            for (int edge = 0; edge < PieceEdges.EDGES; edge++) {
+                edges[edge] = cellSides[(edge + rotation) % PieceEdges.EDGES];
+            }
+
+            pieces.add(piece(edges));
+        }
+        Collections.shuffle(pieces, random);
+
+        return pieces;
+    }
+
+    public static List<Piece> chainOfPieces(int count, Random random) {
+        //Edge 1 of each piece mates with edge 3 of the next one, edges 0 and 2 are flat
+
+        float[][] sharedEdges = new float[count][];
+        for (int i = 0; i < count; i++) {
+            sharedEdges[i] = lockProfile(random);
+        }
+
+        List<Piece> pieces = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            pieces.add(piece(new float[][]{new float[PieceEdges.SAMPLES], sharedEdges[i], new float[PieceEdges.SAMPLES],
+                    mate(sharedEdges[(i + count - 1) % count])}));
+        }
+
+        return pieces;
+    }
+
+    private static Piece piece(float[][] edges) {
+        //The middle sample tells the lock direction, a flat profile is all zeros
+
+        float[] profiles = new float[PieceEdges.EDGES * PieceEdges.SAMPLES];
+        EdgeType[] types = new EdgeType[PieceEdges.EDGES];
+        for (int edge = 0; edge < PieceEdges.EDGES; edge++) {
+
+            System.arraycopy(edges[edge], 0, profiles, edge * PieceEdges.SAMPLES, PieceEdges.SAMPLES);
+            float middle = edges[edge][PieceEdges.SAMPLES / 2];
+            types[edge] = middle > 0 ? EdgeType.TAB : middle < 0 ? EdgeType.BLANK : EdgeType.FLAT;
+        }
+
+        return new Piece(new PointList(), new PointList(), new Point(0, 0), new PointList(),
+                new PieceEdges(profiles, new float[]{300, 300, 300, 300}, types));
+    }
+
+    private static float[] lockProfile(Random random) {
+
+        float[] profile = new float[PieceEdges.SAMPLES];
+        float depth = (random.nextBoolean() ? 1 : -1) * (0.2f + 0.2f * random.nextFloat());
+        float center = 0.4f + 0.2f * random.nextFloat();
+        float width = 0.08f + 0.08f * random.nextFloat();
+        for (int s = 0; s < PieceEdges.SAMPLES; s++) {
+
+            float position = s / (float) (PieceEdges.SAMPLES - 1);
+            profile[s] = (float) (depth * Math.exp(-Math.pow((position - center) / width, 2)));
+        }
+        profile[PieceEdges.SAMPLES / 2] = depth;
+
+        return profile;
+    }
+
+    private static float[] mate(float[] profile) {
+
+        float[] mate = new float[PieceEdges.SAMPLES];
+        for (int s = 0; s < PieceEdges.SAMPLES; s++) {
+            mate[s] = -profile[PieceEdges.SAMPLES - 1 - s];
+        }
+
+        return mate;
+    }
+}
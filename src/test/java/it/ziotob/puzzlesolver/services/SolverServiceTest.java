@@ -0,0 +1,79 @@
+package it.ziotob.puzzlesolver.services;
+
+import it.ziotob.puzzlesolver.exception.ApplicationException;
+import it.ziotob.puzzlesolver.model.*;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+public class SolverServiceTest {
+
+    @Test
+    public void shouldAssembleShuffledPuzzle() {
+
+        List<Piece> pieces = SyntheticEdges.shuffledPuzzle(20, 25, new Random(11));
+
+        Solution solution = new SolverService().solve(pieces);
+
+        Assertions.assertThat(solution.getRows()).isEqualTo(20);
+        Assertions.assertThat(solution.getColumns()).isEqualTo(25);
+        Assertions.assertThat(solution.getCost()).isEqualTo(0.0);
+        Assertions.assertThat(solution.getExploredStates()).isPositive();
+        Assertions.assertThat(solution.getPlacements().stream().map(Placement::getPiece).distinct().collect(Collectors.toList()))
+                .hasSize(pieces.size());
+    }
+
+    @Test
+    public void shouldAssembleThousandPiecesWithinAMinute() {
+
+        List<Piece> pieces = SyntheticEdges.shuffledPuzzle(25, 40, new Random(23));
+
+        Solution solution = new SolverService().solve(pieces);
+
+        Assertions.assertThat(solution.getCost()).isEqualTo(0.0);
+        Assertions.assertThat(solution.getSolveMillis()).isLessThan(60_000L);
+    }
+
+    @Test
+    public void shouldPlaceFlatEdgesOnTheFrame() {
+
+        List<Piece> pieces = SyntheticEdges.shuffledPuzzle(4, 6, new Random(13));
+
+        Solution solution = new SolverService().solve(pieces);
+        Placement corner = solution.getPlacement(0, 5);
+
+        Assertions.assertThat(pieces.get(corner.getPiece()).getEdges().getType(corner.getEdge(0))).isEqualTo(EdgeType.FLAT);
+        Assertions.assertThat(pieces.get(corner.getPiece()).getEdges().getType(corner.getEdge(1))).isEqualTo(EdgeType.FLAT);
+        Assertions.assertThat(pieces.get(corner.getPiece()).getEdges().getType(corner.getEdge(2))).isNotEqualTo(EdgeType.FLAT);
+    }
+
+    @Test
+    public void shouldSolveFrameWithBorderPiecesOnly() {
+
+        List<Piece> pieces = SyntheticEdges.shuffledPuzzle(12, 15, new Random(19));
+        SolverService solverService = new SolverService();
+
+        Frame frame = solverService.solveFrame(pieces);
+        Solution solution = solverService.solve(pieces, frame);
+
+        Assertions.assertThat(frame.getPlacements()).hasSize(2 * (12 + 15) - 4);
+        Assertions.assertThat(frame.getCost()).isEqualTo(0.0);
+        Assertions.assertThat(frame.getPlacements())
+                .allMatch(placement -> PieceKind.of(pieces.get(placement.getPiece()).getEdges()) != PieceKind.INTERIOR);
+        Assertions.assertThat(frame.getPlacements())
+                .allMatch(placement -> solution.getPlacement(placement.getRow(), placement.getColumn()).getPiece() == placement.getPiece());
+        Assertions.assertThat(solution.getCost()).isEqualTo(0.0);
+    }
+
+    @Test
+    public void shouldRejectGridNotMatchingPieces() {
+
+        List<Piece> pieces = SyntheticEdges.shuffledPuzzle(3, 3, new Random(17));
+
+        Assertions.assertThatThrownBy(() -> new SolverService().solve(pieces, 2, 5))
+                .isInstanceOf(ApplicationException.class);
+    }
+}
@@ -1,10 +1,21 @@
 package it.ziotob.puzzlesolver.spike;
 
+import it.ziotob.puzzlesolver.model.BatchSummary;
+import it.ziotob.puzzlesolver.model.EdgeColors;
+import it.ziotob.puzzlesolver.model.EdgeType;
+import it.ziotob.puzzlesolver.model.Mask;
+import it.ziotob.puzzlesolver.model.Piece;
+import it.ziotob.puzzlesolver.model.PieceEdges;
 import it.ziotob.puzzlesolver.model.Point;
 import it.ziotob.puzzlesolver.model.RawPiece;
+import it.ziotob.puzzlesolver.services.BatchService;
 import it.ziotob.puzzlesolver.services.ImageService;
+import it.ziotob.puzzlesolver.services.PieceService;
+import it.ziotob.puzzlesolver.services.RasterCache;
 import it.ziotob.puzzlesolver.services.RawPieceService;
+import it.ziotob.puzzlesolver.services.StripSegmentationService;
 import it.ziotob.puzzlesolver.tools.PieceEditor;
+import it.ziotob.puzzlesolver.utils.ColorUtils;
 import it.ziotob.puzzlesolver.utils.PointUtils;
 import javafx.util.Pair;
 import org.assertj.core.api.Assertions;
@@ -13,8 +24,15 @@ import org.junit.Test;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 public class SpikeTests {
@@ -37,6 +55,21 @@ public class SpikeTests {
         Assertions.assertThat(image).isNotNull();
     }
 
+    @Test
+    public void shouldLoadImageFromRasterCache() throws IOException {
+
+        RasterCache rasterCache = new RasterCache(Files.createTempDirectory("raster-cache"));
+        BufferedImage image = imageService.loadImage(BASE_PATH + IMAGE_SINGLE_PIECE);
+        BufferedImage stored = imageService.loadImage(BASE_PATH + IMAGE_SINGLE_PIECE, rasterCache);
+        BufferedImage cached = imageService.loadImage(BASE_PATH + IMAGE_SINGLE_PIECE, rasterCache);
+
+        Assertions.assertThat(stored.getWidth()).isEqualTo(image.getWidth());
+        Assertions.assertThat(cached.getRGB(image.getWidth() / 2, image.getHeight() / 2))
+                .isEqualTo(image.getRGB(image.getWidth() / 2, image.getHeight() / 2));
+        Assertions.assertThat(imageService.detectBackgroundMask(cached).cardinality())
+                .isEqualTo(imageService.detectBackgroundMask(image).cardinality());
+    }
+
     @Test
     public void shouldRemoveImageBackground() {
 
@@ -49,6 +82,18 @@ public class SpikeTests {
         imageService.writeImage(BASE_PATH_OUT + "single-piece-noback.png", image);
     }
 
+    @Test
+    public void shouldDetectSameBackgroundWithMask() {
+
+        BufferedImage image = imageService.loadImage(BASE_PATH + IMAGE_SINGLE_PIECE);
+        List<Point> backgroundPoints = imageService.detectBackground(image);
+        Mask backgroundMask = imageService.detectBackgroundMask(image);
+
+        Assertions.assertThat(backgroundMask.cardinality()).isEqualTo(backgroundPoints.size());
+        Assertions.assertThat(backgroundPoints)
+                .allMatch(point -> backgroundMask.get(point.getX(), point.getY()));
+    }
+
     @Test
     public void shouldRemoveImageBackground2() {
 
@@ -115,6 +160,98 @@ public class SpikeTests {
         imageService.writeImage(BASE_PATH_OUT + "single-piece-pieces.png", image);
     }
 
+    @Test
+    public void shouldDetectPiecesFromMask() {
+
+        BufferedImage image = imageService.loadImage(BASE_PATH + IMAGE_SINGLE_PIECE);
+        Mask backgroundMask = imageService.detectBackgroundMask(image);
+        Mask piecesMask = imageService.applyMask(image, backgroundMask);
+        List<RawPiece> pieces = pieceService.detectPieces(piecesMask);
+
+        Assertions.assertThat(piecesMask.cardinality()).isEqualTo(image.getWidth() * image.getHeight() - backgroundMask.cardinality());
+        Assertions.assertThat(pieces.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldSplitSinglePieceIntoEdges() {
+
+        BufferedImage image = imageService.loadImage(BASE_PATH + IMAGE_SINGLE_PIECE);
+        Mask piecesMask = imageService.applyMask(image, imageService.detectBackgroundMask(image));
+        List<Piece> pieces = new PieceService().createPieces(pieceService.detectPieces(piecesMask));
+        PieceEdges edges = pieces.get(0).getEdges();
+
+        Assertions.assertThat(IntStream.range(0, PieceEdges.EDGES).mapToObj(edges::getType).collect(Collectors.toList()))
+                .containsExactly(EdgeType.TAB, EdgeType.BLANK, EdgeType.TAB, EdgeType.BLANK);
+        Assertions.assertThat(edges.getType(0).fits(edges.getType(1))).isTrue();
+    }
+
+    @Test
+    public void shouldSampleEdgeColorsInsidePiece() {
+
+        BufferedImage image = imageService.loadImage(BASE_PATH + IMAGE_SINGLE_PIECE);
+        Mask piecesMask = imageService.applyMask(image, imageService.detectBackgroundMask(image));
+        List<Piece> pieces = new PieceService().createPieces(pieceService.detectPieces(piecesMask), image);
+        EdgeColors colors = pieces.get(0).getEdges().getColors().orElseThrow(IllegalStateException::new);
+        byte[] background = new byte[EdgeColors.CHANNELS];
+        ColorUtils.toLab(image.getRGB(0, 0), background, 0);
+
+        Assertions.assertThat(IntStream.range(0, PieceEdges.EDGES * PieceEdges.SAMPLES).boxed().collect(Collectors.toList()))
+                .allMatch(i -> IntStream.range(0, EdgeColors.CHANNELS)
+                        .map(channel -> colors.getChannel(i / PieceEdges.SAMPLES, i % PieceEdges.SAMPLES, channel) - (background[channel] & 0xFF))
+                        .map(difference -> difference * difference)
+                        .sum() > 20 * 20);
+    }
+
+    @Test
+    public void shouldRunBatchOnPhotoDirectory() throws IOException {
+
+        Path input = Files.createTempDirectory("puzzle-batch");
+        Path output = input.resolve("pieces.csv");
+        Files.copy(Paths.get(BASE_PATH + IMAGE_SINGLE_PIECE), input.resolve("a.jpg"));
+        Files.copy(Paths.get(BASE_PATH + IMAGE_SINGLE_PIECE), input.resolve("b.jpg"));
+
+        BatchSummary summary = new BatchService(imageService, pieceService).run(input, output);
+
+        Assertions.assertThat(summary.getPhotos()).isEqualTo(2);
+        Assertions.assertThat(summary.getFailedPhotos()).isEqualTo(0);
+        Assertions.assertThat(summary.getPieces()).isEqualTo(2);
+        Assertions.assertThat(summary.getFailures()).isEmpty();
+        Assertions.assertThat(Files.readAllLines(output)).hasSize(3);
+        Assertions.assertThat(Files.readAllLines(output).subList(1, 3)).allMatch(line -> line.matches("[ab]\\.jpg,1,.*"));
+    }
+
+    @Test
+    public void shouldReadSameRowsStripByStrip() {
+
+        BufferedImage image = imageService.loadImage(BASE_PATH + IMAGE_SINGLE_PIECE);
+        List<Integer> differentRows = new ArrayList<>();
+        int[] readRows = {0};
+
+        imageService.readStrips(BASE_PATH + IMAGE_SINGLE_PIECE, StripSegmentationService.DEFAULT_STRIP_HEIGHT, (strip, y) -> {
+
+            IntStream.range(0, strip.getHeight())
+                    .filter(row -> !Arrays.equals(strip.getRGB(0, row, strip.getWidth(), 1, null, 0, strip.getWidth()),
+                            image.getRGB(0, y + row, image.getWidth(), 1, null, 0, image.getWidth())))
+                    .forEach(row -> differentRows.add(y + row));
+            readRows[0] += strip.getHeight();
+        });
+
+        Assertions.assertThat(readRows[0]).isEqualTo(image.getHeight());
+        Assertions.assertThat(differentRows).isEmpty();
+    }
+
+    @Test
+    public void shouldDetectPiecesStripByStrip() {
+
+        StripSegmentationService stripService = new StripSegmentationService(imageService, StripSegmentationService.DEFAULT_STRIP_HEIGHT);
+        List<RawPiece> pieces = new ArrayList<>();
+        stripService.detectPieces(BASE_PATH + IMAGE_SINGLE_PIECE, pieces::add);
+
+        Assertions.assertThat(pieces.size()).isEqualTo(1);
+        Assertions.assertThat(pieces)
+                .allMatch(piece -> piece.getOuterLocks().size() == 2 && piece.getInnerLocks().size() == 2);
+    }
+
     @Test
     public void shouldDetectMultiPieces() {
 
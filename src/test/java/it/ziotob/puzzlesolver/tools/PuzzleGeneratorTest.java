@@ -0,0 +1,78 @@
+package it.ziotob.puzzlesolver.tools;
+
+import it.ziotob.puzzlesolver.model.RawPiece;
+import it.ziotob.puzzlesolver.model.SyntheticPiece;
+import it.ziotob.puzzlesolver.model.SyntheticPuzzle;
+import it.ziotob.puzzlesolver.services.ImageService;
+import it.ziotob.puzzlesolver.services.RawPieceService;
+import it.ziotob.puzzlesolver.utils.PointUtils;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.awt.image.DataBufferInt;
+import java.util.Comparator;
+import java.util.List;
+
+public class PuzzleGeneratorTest {
+
+    @Test
+    public void shouldGenerateSameImageForSameSeed() {
+
+        PuzzleGenerator generator = new PuzzleGenerator();
+        generator.setPieces(12);
+
+        int[] first = ((DataBufferInt) generator.generate(3).getImage().getRaster().getDataBuffer()).getData();
+        int[] second = ((DataBufferInt) generator.generate(3).getImage().getRaster().getDataBuffer()).getData();
+
+        Assertions.assertThat(second).isEqualTo(first);
+    }
+
+    @Test
+    public void shouldMateLocksOfGeneratedPuzzle() {
+
+        PuzzleGenerator generator = new PuzzleGenerator();
+        generator.setPieces(12);
+        List<SyntheticPiece> pieces = generator.generate(3).getPieces();
+
+        //Every shared edge is a tab on one piece and a blank on the other, only corners have two flat sides
+        Assertions.assertThat(pieces).hasSize(12);
+        Assertions.assertThat(pieces.stream().mapToInt(SyntheticPiece::getOuterLocks).sum())
+                .isEqualTo(pieces.stream().mapToInt(SyntheticPiece::getInnerLocks).sum())
+                .isEqualTo(3 * 3 + 2 * 4);
+        Assertions.assertThat(pieces.stream().filter(piece -> piece.getOuterLocks() + piece.getInnerLocks() == 2).count())
+                .isEqualTo(4);
+    }
+
+    @Test
+    public void shouldDetectGeneratedPieces() {
+
+        ImageService imageService = new ImageService(ImageService.DEFAULT_HSV_TOLERANCE);
+        PuzzleGenerator generator = new PuzzleGenerator();
+        generator.setPieces(100);
+        generator.setMegapixels(4);
+        SyntheticPuzzle puzzle = generator.generate(7);
+
+        List<RawPiece> pieces = new RawPieceService()
+                .detectPieces(imageService.applyMask(puzzle.getImage(), imageService.detectBackgroundMask(puzzle.getImage())));
+
+        //The angle of a square is only known modulo 90 degrees
+        Assertions.assertThat(pieces).hasSize(100);
+        Assertions.assertThat(puzzle.getPieces()).allMatch(truth -> {
+
+            RawPiece piece = nearest(pieces, truth);
+            double angleError = ((piece.getRotationAngle() - truth.getRotationAngle()) % 90 + 135) % 90 - 45;
+
+            return piece.getOuterLocks().size() == truth.getOuterLocks() && piece.getInnerLocks().size() == truth.getInnerLocks()
+                    && truth.getCorners().stream().allMatch(corner -> piece.getCorners().stream()
+                    .anyMatch(detected -> PointUtils.getDistance(detected, corner) <= 6))
+                    && Math.abs(angleError) <= 1;
+        });
+    }
+
+    private RawPiece nearest(List<RawPiece> pieces, SyntheticPiece truth) {
+        return pieces.stream()
+                .min(Comparator.comparingDouble(piece -> Math.hypot(piece.getCenter().getX() - truth.getCenter().getX(),
+                        piece.getCenter().getY() - truth.getCenter().getY())))
+                .get();
+    }
+}
@@ -0,0 +1,21 @@
+package it.ziotob.puzzlesolver.utils;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class ColorUtilsTest {
+
+    @Test
+    public void shouldConvertReferenceColorsToLab() {
+
+        byte[] lab = new byte[9];
+        ColorUtils.toLab(0xFFFFFF, lab, 0);
+        ColorUtils.toLab(0x000000, lab, 3);
+        ColorUtils.toLab(0xFF0000, lab, 6);
+
+        Assertions.assertThat(new int[]{lab[0] & 0xFF, lab[1] & 0xFF, lab[2] & 0xFF}).containsExactly(255, 128, 128);
+        Assertions.assertThat(new int[]{lab[3] & 0xFF, lab[4] & 0xFF, lab[5] & 0xFF}).containsExactly(0, 128, 128);
+        //Red is L 53.2, a 80.1, b 67.2
+        Assertions.assertThat(new int[]{lab[6] & 0xFF, lab[7] & 0xFF, lab[8] & 0xFF}).containsExactly(136, 208, 195);
+    }
+}
@@ -0,0 +1,84 @@
+package it.ziotob.puzzlesolver.utils;
+
+import it.ziotob.puzzlesolver.model.Component;
+import it.ziotob.puzzlesolver.model.ComponentLabeling;
+import it.ziotob.puzzlesolver.model.Mask;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class ComponentLabelerTest {
+
+    private static Mask mask(String... rows) {
+
+        Mask mask = new Mask(rows[0].length(), rows.length);
+        for (int y = 0; y < rows.length; y++) {
+            for (int x = 0; x < rows[y].length(); x++) {
+                if (rows[y].charAt(x) == '#') {
+                    mask.set(x, y);
+                }
+            }
+        }
+
+        return mask;
+    }
+
+    @Test
+    public void shouldMergeRunsJoinedOnLaterRows() {
+
+        ComponentLabeling labeling = ComponentLabeler.label(mask(
+                "#..#",
+                "#..#",
+                "####"));
+
+        Assertions.assertThat(labeling.getComponents()).hasSize(1);
+        Component component = labeling.getComponents().get(0);
+        Assertions.assertThat(component.getPixelCount()).isEqualTo(8);
+        Assertions.assertThat(component.getWidth()).isEqualTo(4);
+        Assertions.assertThat(component.getHeight()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldNotConnectDiagonalPixels() {
+
+        ComponentLabeling labeling = ComponentLabeler.label(mask(
+                "#...",
+                ".#..",
+                "..##"));
+
+        Assertions.assertThat(labeling.getComponents()).hasSize(3);
+        Assertions.assertThat(labeling.toPointLists().get(2).size()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldLabelInRasterOrder() {
+
+        ComponentLabeling labeling = ComponentLabeler.label(mask(
+                "..##",
+                "#...",
+                "#..."));
+
+        Assertions.assertThat(labeling.getComponents().get(0).getMinX()).isEqualTo(2);
+        Assertions.assertThat(labeling.getComponents().get(1).getMinY()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldLabelTilesLikeSequentialMode() {
+
+        Random random = new Random(42);
+        Mask mask = new Mask(200, 150);
+        IntStream.range(0, 200 * 150)
+                .filter(i -> random.nextInt(100) < 55)
+                .forEach(i -> mask.set(i % 200, i / 200));
+
+        ComponentLabeling sequential = ComponentLabeler.label(mask);
+        ComponentLabeling parallel = ComponentLabeler.label(mask, 7);
+
+        Assertions.assertThat(parallel.getComponents().size()).isEqualTo(sequential.getComponents().size());
+        Assertions.assertThat(IntStream.range(0, sequential.getRuns().getSize()).boxed().collect(Collectors.toList()))
+                .allMatch(run -> parallel.getLabel(run) == sequential.getLabel(run));
+    }
+}
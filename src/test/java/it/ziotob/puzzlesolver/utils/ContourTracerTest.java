@@ -0,0 +1,74 @@
+package it.ziotob.puzzlesolver.utils;
+
+import it.ziotob.puzzlesolver.model.Mask;
+import it.ziotob.puzzlesolver.model.Point;
+import it.ziotob.puzzlesolver.model.PointList;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class ContourTracerTest {
+
+    private static Mask mask(String... rows) {
+
+        Mask mask = new Mask(rows[0].length(), rows.length);
+        for (int y = 0; y < rows.length; y++) {
+            for (int x = 0; x < rows[y].length(); x++) {
+                if (rows[y].charAt(x) == '#') {
+                    mask.set(x, y);
+                }
+            }
+        }
+
+        return mask;
+    }
+
+    @Test
+    public void shouldTraceClockwiseFromTopLeft() {
+
+        PointList contour = ContourTracer.trace(mask(
+                "###",
+                "###",
+                "###"), 10, 20);
+
+        Assertions.assertThat(contour.asList()).containsExactly(
+                new Point(10, 20), new Point(11, 20), new Point(12, 20),
+                new Point(12, 21), new Point(12, 22), new Point(11, 22),
+                new Point(10, 22), new Point(10, 21));
+    }
+
+    @Test
+    public void shouldPruneOnePixelSpurs() {
+
+        PointList contour = ContourTracer.trace(mask(
+                "##....",
+                "######",
+                "##...."), 0, 0);
+
+        Assertions.assertThat(contour.asList()).containsExactly(
+                new Point(0, 0), new Point(1, 0), new Point(2, 1),
+                new Point(1, 2), new Point(0, 2), new Point(0, 1));
+    }
+
+    @Test
+    public void shouldPruneSpurEndingOnStartPixel() {
+
+        PointList contour = ContourTracer.trace(mask(
+                ".#.",
+                ".#.",
+                "###",
+                "###"), 0, 0);
+
+        Assertions.assertThat(contour.asList()).containsExactly(
+                new Point(1, 1), new Point(2, 2), new Point(2, 3),
+                new Point(1, 3), new Point(0, 3), new Point(0, 2));
+    }
+
+    @Test
+    public void shouldTraceSinglePixel() {
+
+        PointList points = new PointList();
+        points.add(5, 7);
+
+        Assertions.assertThat(ContourTracer.trace(points).asList()).containsExactly(new Point(5, 7));
+    }
+}
@@ -0,0 +1,40 @@
+package it.ziotob.puzzlesolver.utils;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+public class KdTreeTest {
+
+    @Test
+    public void shouldFindSameNeighboursAsLinearScan() {
+
+        Random random = new Random(7);
+        int dimensions = 5;
+        int size = 2000;
+        float[] vectors = new float[size * dimensions];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = random.nextFloat();
+        }
+        KdTree tree = new KdTree(vectors, IntStream.range(0, size).toArray(), dimensions);
+
+        for (int query = 0; query < 20; query++) {
+
+            float[] point = new float[dimensions];
+            for (int d = 0; d < dimensions; d++) {
+                point[d] = random.nextFloat();
+            }
+            int[] expected = IntStream.range(0, size).boxed()
+                    .sorted(Comparator.comparingDouble(id -> IntStream.range(0, dimensions)
+                            .mapToDouble(d -> Math.pow(point[d] - vectors[id * dimensions + d], 2)).sum()))
+                    .limit(10)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+
+            Assertions.assertThat(tree.nearest(point, 10)).containsExactly(expected);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package it.ziotob.puzzlesolver.utils;
+
+import it.ziotob.puzzlesolver.model.Moments;
+import it.ziotob.puzzlesolver.model.PointList;
+import it.ziotob.puzzlesolver.model.RawPieceFactory;
+import it.ziotob.puzzlesolver.services.ImageService;
+import it.ziotob.puzzlesolver.services.RawPieceService;
+import it.ziotob.puzzlesolver.tools.PuzzleGenerator;
+import javafx.util.Pair;
+import jdk.jfr.Event;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class MetricsTest {
+
+    @After
+    public void disableMetrics() {
+
+        Metrics.disable();
+        Metrics.reset();
+    }
+
+    @Test
+    public void shouldEstimatePercentilesFromBuckets() {
+
+        StageMetrics metrics = new StageMetrics();
+        for (int i = 0; i < 99; i++) {
+            metrics.record(100_000, 2, 10);
+        }
+        metrics.record(5_000_000, 2, 10);
+
+        Assertions.assertThat(metrics.getCount()).isEqualTo(100);
+        Assertions.assertThat(metrics.getItems()).isEqualTo(200);
+        Assertions.assertThat(metrics.getAllocatedBytes()).isEqualTo(1000);
+        Assertions.assertThat(metrics.getP50Micros()).isEqualTo(128);
+        Assertions.assertThat(metrics.getP99Micros()).isEqualTo(128);
+        Assertions.assertThat(metrics.getMaxMicros()).isEqualTo(5000);
+    }
+
+    @Test
+    public void shouldRecordOnlyWhenEnabled() {
+
+        Metrics.reset();
+        Metrics.start(Metrics.Stage.HULL).stop();
+        Metrics.enable();
+        Metrics.start(Metrics.Stage.HULL).stop(3);
+        Metrics.disable();
+
+        Assertions.assertThat(Metrics.get(Metrics.Stage.HULL).getCount()).isEqualTo(1);
+        Assertions.assertThat(Metrics.get(Metrics.Stage.HULL).getItems()).isEqualTo(3);
+        Assertions.assertThat(Metrics.summary()).startsWith("{\"HULL\":{\"count\":1,\"items\":3,");
+    }
+
+    @Test
+    public void shouldShareOnePieceContextWhenNothingReadsIt() {
+
+        Metrics.disable();
+
+        Assertions.assertThat(Metrics.piece(10)).isSameAs(Metrics.piece(20));
+    }
+
+    @Test
+    public void shouldEmitImageStageEventsWhileRecording() throws IOException {
+
+        ImageService imageService = new ImageService(ImageService.DEFAULT_HSV_TOLERANCE);
+        PuzzleGenerator generator = new PuzzleGenerator();
+        generator.setPieces(4);
+        generator.setWidth(400);
+        generator.setHeight(300);
+        BufferedImage image = generator.generate(1).getImage();
+        List<Pair<PointList, Moments>> pieces = new ArrayList<>();
+
+        List<RecordedEvent> events = record(ImageStageEvent.class, () -> pieces.addAll(new RawPieceService()
+                .detectPiecesPoints(imageService.applyMask(image, imageService.detectBackgroundMask(image)))));
+
+        Assertions.assertThat(pieces).hasSize(4);
+        Assertions.assertThat(events.stream().map(event -> event.getString("stage")).collect(Collectors.toList()))
+                .containsExactly("BACKGROUND", "MASK", "LABELING");
+        Assertions.assertThat(events.get(2).getLong("items")).isEqualTo(4);
+    }
+
+    @Test
+    public void shouldEmitPieceStepEventsWhileRecording() throws IOException {
+
+        PointList square = new PointList();
+        IntStream.range(0, 80 * 80).forEach(i -> square.add(10 + i % 80, 10 + i / 80));
+
+        List<RecordedEvent> events = record(PieceStepEvent.class, () -> RawPieceFactory.factory(square));
+
+        Assertions.assertThat(events.stream().map(event -> event.getString("step")).collect(Collectors.toList()))
+                .contains("BORDERS", "DEFECTS", "OUTER_LOCKS", "CORNERS", "PIECE");
+        Assertions.assertThat(events).allMatch(event -> event.getLong("pixels") == 80 * 80);
+        Assertions.assertThat(events.stream().map(event -> event.getLong("pieceId")).distinct().collect(Collectors.toList()))
+                .hasSize(1)
+                .doesNotContain(0L);
+        Assertions.assertThat(events.stream().filter(event -> event.getString("step").equals("PIECE")).collect(Collectors.toList()))
+                .allMatch(event -> event.getInt("borderLength") == 4 * 79);
+    }
+
+    private List<RecordedEvent> record(Class<? extends Event> eventClass, Runnable action) throws IOException {
+
+        Path file = Files.createTempFile("metrics", ".jfr");
+
+        try {
+            try (Recording recording = new Recording()) {
+
+                recording.enable(eventClass);
+                recording.start();
+                action.run();
+                recording.stop();
+                recording.dump(file);
+            }
+
+            String name = eventClass.getAnnotation(Name.class).value();
+
+            return RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().equals(name))
+                    .collect(Collectors.toList());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
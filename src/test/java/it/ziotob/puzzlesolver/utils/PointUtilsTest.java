@@ -1,11 +1,14 @@
 package it.ziotob.puzzlesolver.utils;
 
+import it.ziotob.puzzlesolver.model.Mask;
 import it.ziotob.puzzlesolver.model.Point;
 import org.assertj.core.api.Assertions;
 import org.junit.Test;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class PointUtilsTest {
 
@@ -47,4 +50,53 @@ public class PointUtilsTest {
         Assertions.assertThat(PointUtils.sortClockwise(PointUtils.sortClockwise(list)))
                 .containsExactly(d, c, b, a);
     }
+
+    @Test
+    public void shouldCountPixelsOfPolygonWithPickTheorem() {
+
+        List<Point> square = Arrays.asList(new Point(0, 0), new Point(4, 0), new Point(4, 4), new Point(0, 4));
+        double area = PointUtils.polygonArea(square);
+        int boundary = PointUtils.boundaryLatticePoints(square);
+
+        Assertions.assertThat(area).isEqualTo(16.0);
+        Assertions.assertThat(boundary).isEqualTo(16);
+        Assertions.assertThat(area - boundary / 2.0 + 1).isEqualTo(9.0);
+    }
+
+    @Test
+    public void shouldFindCentroidOfPolygonArea() {
+
+        List<Point> triangle = Arrays.asList(new Point(0, 0), new Point(6, 0), new Point(0, 6));
+        List<Point> segment = Arrays.asList(new Point(0, 0), new Point(4, 2));
+
+        Assertions.assertThat(PointUtils.polygonCentroid(triangle).getX()).isEqualTo(2.0);
+        Assertions.assertThat(PointUtils.polygonCentroid(triangle).getY()).isEqualTo(2.0);
+        Assertions.assertThat(PointUtils.polygonCentroid(segment).getX()).isEqualTo(2.0);
+        Assertions.assertThat(PointUtils.polygonCentroid(segment).getY()).isEqualTo(1.0);
+    }
+
+    @Test
+    public void shouldFindMinimumAreaRectangleOfRotatedHull() {
+
+        List<Point> hull = Arrays.asList(new Point(0, 0), new Point(30, 40), new Point(-10, 70), new Point(-40, 40), new Point(-40, 30));
+        double angle = PointUtils.minimumAreaRectangleAngle(hull);
+
+        Assertions.assertThat(((angle % 90) + 90) % 90).isCloseTo(53.13, Assertions.within(0.01));
+    }
+
+    @Test
+    public void shouldFindSameHullOnOrderedContour() {
+
+        Mask mask = new Mask(60, 60);
+        IntStream.range(0, 60 * 60)
+                .filter(i -> Math.hypot(i % 60 - 30, i / 60 - 30) < 25 && Math.abs(i % 60 - 40) + Math.abs(i / 60 - 30) > 8)
+                .forEach(i -> mask.set(i % 60, i / 60));
+        List<Point> contour = ContourTracer.trace(mask, 0, 0).asList();
+
+        int[] hullIndexes = PointUtils.convexHullIndexes(contour);
+
+        Assertions.assertThat(hullIndexes).isSorted();
+        Assertions.assertThat(Arrays.stream(hullIndexes).mapToObj(contour::get).collect(Collectors.toList()))
+                .containsExactlyInAnyOrderElementsOf(PointUtils.convexHull(contour));
+    }
 }